@@ -81,7 +81,7 @@ class GameBoardPanel extends JPanel {
    private JLabel gameStatusLabel;
   
    // Grid of "buttons" (actually JLabels)
-   private SquareView[][] mySquares;  // need so we can update display en masse
+   private SquareView[][] mySquares;  // need so we can update the display of the squares that change
 
    private VisibleField visibleField;     // game data (the Model in MVC)
    
@@ -190,11 +190,10 @@ class GameBoardPanel extends JPanel {
             // subsequent games.
             visibleField.resetGameDisplay();
             userChoseFirstLocation = false;
-            updateAllSquaresViews();
+            updateChangedSquaresViews();
             mineGuessLabel.setText(Integer.toString(visibleField.getMineField().numMines()));
             newGameButton.setIcon(happyIcon);
             gameStatusLabel.setText("");
-            repaint();
          }
       });
       
@@ -231,14 +230,17 @@ class GameBoardPanel extends JPanel {
 
 
    /**
-      Update all the squares in the GUI based on the current state of the VisibleField.
+      Update the squares in the GUI whose status in the VisibleField changed since the last update, and schedule a
+      repaint of each of them.  Swing coalesces the repaints, so they are all painted together once the
+      current event is handled, and the squares that didn't change aren't touched at all.
     */
-   private void updateAllSquaresViews() {
-      for (int row = 0; row < mySquares.length; row++) {
-         for (int col = 0; col < mySquares[0].length; col++) {
+   private void updateChangedSquaresViews() {
+      visibleField.forEachChangedSquare(new VisibleField.SquareVisitor() {  // this visitor is an anonymous inner class
+         public void visit(int row, int col) {
             mySquares[row][col].updateDisplayProperties();
+            mySquares[row][col].repaint();
          }
-      }   
+      });
    }
    
    
@@ -322,9 +324,7 @@ class GameBoardPanel extends JPanel {
             
          }
           
-         updateAllSquaresViews();     // don't know which squares changed, so update view for all squares to match 
-                                      // changes in the model
-         repaint();
+         updateChangedSquaresViews();     // update the view for just the squares the model says changed
            
       }
       
@@ -345,7 +345,7 @@ class GameBoardPanel extends JPanel {
          }
          // get changed state of square from model, and update the View accordingly
          // (for such an action, only the one square gets changed)
-         mySquare.updateDisplayProperties();
+         updateChangedSquaresViews();
       }
       
    }
@@ -1,3 +1,4 @@
+import java.util.Arrays;
 import java.util.Random;
 /** 
    MineField
@@ -5,11 +6,23 @@ import java.util.Random;
       This class is mutable, because we sometimes need to change it once it's created.
       mutators: populateMineField, resetEmpty
       includes convenience method to tell the number of mines adjacent to a location.
+      The mines are kept in a bitset, one bit per location, so even very large fields take little memory.
+      The number of mines adjacent to each location is kept too, 4 bits per location, and updated as mines are
+      placed, so looking it up is a single array read.
  */
 public class MineField {
    
    // <put instance variables here>
-   private boolean[][] mineField;
+   
+   /**
+      Representation invariant:
+      there is a mine at (row, col) iff bit (row * numCols + col) % 64 of mineField[(row * numCols + col) / 64]
+      is set; the bits past the last location are 0.
+      numAdjacentMines(row, col) is held in 4 bits of adjacentCounts: the low 4 bits of
+      adjacentCounts[(row * numCols + col) / 2] if row * numCols + col is even, the high 4 bits if it is odd.
+   */
+   private long[] mineField;
+   private byte[] adjacentCounts;
    private int numRows;
    private int numCols;
    private int numMines;
@@ -24,12 +37,15 @@ public class MineField {
    public MineField(boolean[][] mineData) {
       numRows = mineData.length;
       numCols = mineData[0].length;
-      mineField = new boolean[numRows][numCols];
+      mineField = new long[numWords(numRows, numCols)];
+      adjacentCounts = new byte[numCountBytes(numRows, numCols)];
       
       for(int i = 0; i < numRows; i++){
          for(int j = 0; j < numCols; j++){
-            mineField[i][j] = mineData[i][j];
-            if(mineField[i][j]) { numMines++; }
+            if(mineData[i][j]){
+               setMine(i, j);
+               numMines++;
+            }
          }
       }
    }
@@ -48,7 +64,8 @@ public class MineField {
       this.numRows = numRows;
       this.numCols = numCols;
       this.numMines = numMines;
-      mineField = new boolean[numRows][numCols];
+      mineField = new long[numWords(numRows, numCols)];
+      adjacentCounts = new byte[numCountBytes(numRows, numCols)];
    }
    
 
@@ -70,8 +87,8 @@ public class MineField {
          
          if(row == randRow && col == randCol) { continue; }
          else{
-            if(!mineField[randRow][randCol]){
-               mineField[randRow][randCol] = true;
+            if(!hasMine(randRow, randCol)){
+               setMine(randRow, randCol);
                currNumMines++;
             }
          }
@@ -86,11 +103,8 @@ public class MineField {
          at the beginning of a game.
     */
    public void resetEmpty() {
-      for(int i = 0; i < numRows; i++){
-         for(int j = 0; j < numCols; j++){
-            mineField[i][j] = false;
-         }
-      }
+      Arrays.fill(mineField, 0L);
+      Arrays.fill(adjacentCounts, (byte) 0);
    }
 
    
@@ -104,15 +118,8 @@ public class MineField {
      PRE: inRange(row, col)
    */
    public int numAdjacentMines(int row, int col) {
-      int numAdjacent = 0;
-      int posNext[][] = {{1,1},{1,-1},{-1,1},{-1,-1},{0,1},{1,0},{0,-1},{-1,0}};//list all possible loctions and try every loction surrounding specific square
-      
-      for(int i = 0; i < posNext.length; i++){
-         if(inRange(row+posNext[i][0], col+posNext[i][1])){
-            if(mineField[row+posNext[i][0]][col+posNext[i][1]]) { numAdjacent ++; }
-         }
-      }
-      return numAdjacent;      
+      long loc = (long) row * numCols + col;
+      return (adjacentCounts[(int) (loc >>> 1)] >>> ((int) loc & 1) * 4) & 0xF;
    }
    
    
@@ -157,7 +164,28 @@ public class MineField {
       PRE: inRange(row, col)   
    */    
    public boolean hasMine(int row, int col) {
-      return mineField[row][col]; 
+      long loc = (long) row * numCols + col;
+      return (mineField[(int) (loc >>> 6)] & (1L << loc)) != 0;
+   }
+   
+   
+   /**
+      Returns the location of the first mine at or after a location, in row-major order, for visiting every mine
+      without looking at every location.  Locations are numbered row * numCols() + col.
+      @param loc  the location to start from; may be numRows() * numCols() or more
+      @return the number of the first location at or after loc that has a mine, or -1 if there is none
+      PRE: loc >= 0
+   */
+   public long nextMine(long loc) {
+      int word = (int) (loc >>> 6);
+      if(word >= mineField.length) { return -1; }
+      
+      long bits = mineField[word] & (-1L << loc);//drop the locations before loc
+      while(bits == 0){
+         if(++word == mineField.length) { return -1; }
+         bits = mineField[word];
+      }
+      return ((long) word << 6) + Long.numberOfTrailingZeros(bits);
    }
    
    
@@ -170,6 +198,50 @@ public class MineField {
    public int numMines() {
       return numMines;       
    }
-     
+   
+   
+   // <put private methods here>
+   
+   /**
+      Put a mine at a location, and add it to the adjacent mine counts of the locations around it.
+      @param row  row of the location
+      @param col  column of the location
+      PRE: inRange(row, col) and !hasMine(row, col)
+    */
+   private void setMine(int row, int col) {
+      long loc = (long) row * numCols + col;
+      mineField[(int) (loc >>> 6)] |= 1L << loc;
+      
+      int lastRow = Math.min(row + 1, numRows - 1);
+      int lastCol = Math.min(col + 1, numCols - 1);
+      for(int i = Math.max(row - 1, 0); i <= lastRow; i++){
+         for(int j = Math.max(col - 1, 0); j <= lastCol; j++){
+            if(i == row && j == col) { continue; }//a mine doesn't count itself
+            long next = (long) i * numCols + j;
+            adjacentCounts[(int) (next >>> 1)] += 1 << ((int) next & 1) * 4;//a count is at most 8, so it never carries
+         }
+      }
+   }
+   
+   
+   /**
+      Returns the number of longs needed for one bit per location.
+      @param numRows  number of rows in the field
+      @param numCols  number of columns in the field
+      @return the length of the bitset array
+    */
+   private static int numWords(int numRows, int numCols) {
+      return (int) (((long) numRows * numCols + 63) >>> 6);
+   }
+   
+   
+   /**
+      Returns the number of bytes needed for 4 bits per location.
+      @param numRows  number of rows in the field
+      @param numCols  number of columns in the field
+      @return the length of the adjacent count array
+    */
+   private static int numCountBytes(int numRows, int numCols) {
+      return (int) (((long) numRows * numCols + 1) >>> 1);
+   }
 }
-
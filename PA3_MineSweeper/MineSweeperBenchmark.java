@@ -0,0 +1,285 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+/**
+   Benchmarks for the minesweeper model on boards much larger than the game window shows: how fast one click
+   uncovers a region (VisibleField.uncover), for each board size and mine density, how fast the game status
+   (VisibleField.isGameOver and numMinesLeft, asked after every click) can be read in the middle of a game, and
+   how much memory the MineField and VisibleField of a very large board take.
+   Every benchmark runs a few warm-up rounds and then timed rounds, and reports operations and squares uncovered
+   per second, average time and allocation per operation (from the JVM's per-thread allocation counter), plus the
+   collector time spent while it was measured. Only the operations are timed; the display is reset between clicks,
+   outside the timer. Mines come from a seeded generator, so every run measures the same work.
+
+   Usage: java MineSweeperBenchmark [-only stage] [-time ms]
+   where stage is one of uncover, status, memory, and ms is the length of each round.
+   The largest boards need a heap of about 1 GB, e.g. java -Xmx2g MineSweeperBenchmark
+ */
+public class MineSweeperBenchmark {
+   private static final String ONLY_FLAG = "-only";
+   private static final String TIME_FLAG = "-time";
+   private static final String[] STAGES = {"uncover", "status", "memory"};
+
+   private static final int[] BOARD_SIZES = {100, 1000, 5000};  // rows and columns of each square board
+   private static final int[] MINE_PERCENTS = {0, 5, 15};
+   private static final long SEED = 42;
+   private static final int LARGE_BOARD_SIZE = 10000;  // rows and columns of the board whose memory is measured
+   private static final int LARGE_BOARD_MINE_PERCENT = 15;
+
+   private static final int WARMUP_ROUNDS = 3;
+   private static final int MEASURED_ROUNDS = 5;
+   private static final long DEFAULT_ROUND_MILLIS = 1000;
+
+   private static long roundMillis = DEFAULT_ROUND_MILLIS;
+   private static long sink;  // every result is folded in here so the JIT can't drop the work
+
+   /**
+      One benchmarked operation. Each call does one click and returns something derived from its result.
+    */
+   private interface Operation {
+      long run(int i) throws Exception;
+   }
+
+   /**
+      Usage: java MineSweeperBenchmark [-only stage] [-time ms]
+    */
+   public static void main(String[] args) throws Exception {
+      String only = null;
+
+      for(int i = 0; i < args.length; i++){
+         if(args[i].equals(ONLY_FLAG) && i + 1 < args.length){ only = args[++i]; }
+         else if(args[i].equals(TIME_FLAG) && i + 1 < args.length){ roundMillis = Long.parseLong(args[++i]); }
+         else{
+            System.out.println("ERROR: unknown argument \"" + args[i] + "\"");
+            return;
+         }
+      }
+      if(only != null && !Arrays.asList(STAGES).contains(only)){
+         System.out.println("ERROR: unknown stage \"" + only + "\", expected one of " + Arrays.toString(STAGES));
+         return;
+      }
+
+      System.out.printf("%-32s %12s %12s %14s %14s %10s%n", "Benchmark", "ops/s", "ms/op", "squares/s", "bytes/op", "gc ms");
+
+      if(only == null || only.equals("uncover")){ benchmarkUncover(); }
+      if(only == null || only.equals("status")){ benchmarkStatus(); }
+      if(only == null || only.equals("memory")){ benchmarkMemory(); }
+
+      if(sink == 42){ System.out.println(); }//keeps sink alive
+   }
+
+   /**
+      Click a square with no adjacent mines on a new game, for each board size and mine density. With no
+      mines, one click uncovers the whole board.
+    */
+   private static void benchmarkUncover(){
+      for(int size : BOARD_SIZES){
+         for(int percent : MINE_PERCENTS){
+            VisibleField field = new VisibleField(generateMineField(size, size, percent));
+            int[] click = findOpenSquare(field.getMineField());
+            measure("uncover " + size + "x" + size + " mines=" + percent + "%", field::resetGameDisplay,
+                    i -> field.uncover(click[0], click[1]) ? 1 : 0, () -> countUncovered(field));
+         }
+      }
+   }
+
+   /**
+      Read the game status after one click, for each board size.
+    */
+   private static void benchmarkStatus(){
+      for(int size : BOARD_SIZES){
+         VisibleField field = new VisibleField(generateMineField(size, size, MINE_PERCENTS[MINE_PERCENTS.length - 1]));
+         int[] click = findOpenSquare(field.getMineField());
+         field.uncover(click[0], click[1]);
+         measure("status " + size + "x" + size, () -> {}, i -> field.isGameOver() ? 1 : field.numMinesLeft(), null);
+      }
+   }
+
+   /**
+      Measure the heap taken by the MineField and VisibleField of a new game on a very large board.
+    */
+   private static void benchmarkMemory(){
+      long before = usedHeap();
+      MineField mineField = new MineField(LARGE_BOARD_SIZE, LARGE_BOARD_SIZE,
+                                          (int) ((long) LARGE_BOARD_SIZE * LARGE_BOARD_SIZE * LARGE_BOARD_MINE_PERCENT / 100));
+      mineField.populateMineField(0, 0);
+      VisibleField field = new VisibleField(mineField);
+      long bytes = usedHeap() - before;
+
+      System.out.printf("%-32s %.1f MB (%.2f bytes per square)%n",
+                        "memory " + LARGE_BOARD_SIZE + "x" + LARGE_BOARD_SIZE + " mines=" + LARGE_BOARD_MINE_PERCENT + "%",
+                        bytes / 1e6, (double) bytes / LARGE_BOARD_SIZE / LARGE_BOARD_SIZE);
+      sink += field.getStatus(0, 0);
+   }
+
+   /**
+      Time an operation, and print its throughput, average time and allocation.
+      @param name  the name to print
+      @param setup  run before every call of op, outside the timer
+      @param op  the operation
+      @param uncovered  counts the squares uncovered by the last call of op, outside the timer; null if op
+                        uncovers nothing
+    */
+   private static void measure(String name, Runnable setup, Operation op, LongSupplier uncovered){
+      AllocationCounter allocation = new AllocationCounter();
+      long ops = 0;
+      long squares = 0;
+      long nanos = 0;
+      long bytes = 0;
+      long gcMillis = 0;
+
+      try{
+         for(int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++){
+            long deadline = System.nanoTime() + roundMillis * 1000000L;
+            long roundOps = 0;
+            long roundSquares = 0;
+            long roundNanos = 0;
+            long roundBytes = 0;
+            long gcBefore = gcMillis();
+
+            do{
+               setup.run();
+               long bytesBefore = allocation.get();
+               long start = System.nanoTime();
+               sink += op.run((int) roundOps++);
+               roundNanos += System.nanoTime() - start;
+               roundBytes += allocation.get() - bytesBefore;
+               if(uncovered != null) { roundSquares += uncovered.getAsLong(); }
+            } while(System.nanoTime() < deadline);
+
+            if(round >= WARMUP_ROUNDS){
+               ops += roundOps;
+               squares += roundSquares;
+               nanos += roundNanos;
+               bytes += roundBytes;
+               gcMillis += gcMillis() - gcBefore;
+            }
+         }
+      }
+      catch(Exception e){
+         System.out.printf("%-32s failed: %s%n", name, e);
+         return;
+      }
+      catch(StackOverflowError e){
+         System.out.printf("%-32s failed: %s%n", name, e);
+         return;
+      }
+
+      String bytesPerOp = allocation.isSupported() ? String.format("%.1f", (double) bytes / ops) : "n/a";
+      String squaresPerSecond = (uncovered != null) ? String.format("%.0f", squares * 1e9 / nanos) : "n/a";
+      System.out.printf("%-32s %12.1f %12.3f %14s %14s %10d%n",
+                        name, ops * 1e9 / nanos, nanos / 1e6 / ops, squaresPerSecond, bytesPerOp, gcMillis);
+   }
+
+   /**
+      Get the heap in use, after asking for a full collection so that it holds only reachable objects.
+      @return the bytes of heap in use
+    */
+   private static long usedHeap(){
+      Runtime runtime = Runtime.getRuntime();
+      for(int i = 0; i < 3; i++){ System.gc(); }
+      return runtime.totalMemory() - runtime.freeMemory();
+   }
+
+   /**
+      Get the total time all collectors have spent so far.
+      @return the collection time in milliseconds
+    */
+   private static long gcMillis(){
+      long total = 0;
+      for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()){
+         total += Math.max(0, gc.getCollectionTime());
+      }
+      return total;
+   }
+
+   /**
+      Make a minefield with mines in a seeded random choice of squares, so every run gets the same field.
+      @param numRows  number of rows
+      @param numCols  number of columns
+      @param percent  the percentage of squares that have a mine
+      @return the minefield
+    */
+   static MineField generateMineField(int numRows, int numCols, int percent){
+      Random random = new Random(SEED);
+      boolean[][] mineData = new boolean[numRows][numCols];
+      for(int i = 0; i < numRows; i++){
+         for(int j = 0; j < numCols; j++){
+            mineData[i][j] = random.nextInt(100) < percent;
+         }
+      }
+      return new MineField(mineData);
+   }
+
+   /**
+      Find a square with no mine and no adjacent mines, searching row by row from the middle row, so a click
+      there opens a region; if there is none, the first square with no mine that the search reaches.
+      @param mineField  the field to search
+      @return the row and column of the square
+    */
+   private static int[] findOpenSquare(MineField mineField){
+      int[] safe = null;
+      for(int k = 0; k < mineField.numRows(); k++){
+         int i = (mineField.numRows() / 2 + k) % mineField.numRows();
+         for(int j = 0; j < mineField.numCols(); j++){
+            if(mineField.hasMine(i, j)) { continue; }
+            if(mineField.numAdjacentMines(i, j) == 0) { return new int[]{i, j}; }
+            if(safe == null) { safe = new int[]{i, j}; }
+         }
+      }
+      return safe;
+   }
+
+   /**
+      Count the uncovered squares.
+      @param field  the field to count
+      @return the number of squares for which isUncovered is true
+    */
+   private static long countUncovered(VisibleField field){
+      long count = 0;
+      MineField mineField = field.getMineField();
+      for(int i = 0; i < mineField.numRows(); i++){
+         for(int j = 0; j < mineField.numCols(); j++){
+            if(field.isUncovered(i, j)) { count++; }
+         }
+      }
+      return count;
+   }
+
+   /**
+      Reads the number of bytes the current thread has allocated, if the JVM can tell.
+    */
+   private static class AllocationCounter {
+      private com.sun.management.ThreadMXBean threads;
+
+      /**
+         Create a counter, enabling the JVM's allocation counter if it is available.
+       */
+      public AllocationCounter(){
+         if(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean){
+            threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            if(threads.isThreadAllocatedMemorySupported()){ threads.setThreadAllocatedMemoryEnabled(true); }
+            else{ threads = null; }
+         }
+      }
+
+      /**
+         Whether allocation can be measured on this JVM.
+         @return whether get returns meaningful values
+       */
+      public boolean isSupported(){
+         return threads != null;
+      }
+
+      /**
+         Get the number of bytes the current thread has allocated so far.
+         @return the allocated bytes, or 0 if not supported
+       */
+      public long get(){
+         return (threads == null) ? 0 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+   }
+}
@@ -1,3 +1,5 @@
+import java.util.Arrays;
+
 /**
   VisibleField class
   This is the data that's being displayed at any one point in the game (i.e., visible field, because it's what the
@@ -11,6 +13,11 @@
   the Model for the game application, whereas GameBoardPanel is the View and Controller, in the MVC design pattern.
   It contains the MineField that it's partially displaying.  That MineField can be accessed (or modified) from 
   outside this class via the getMineField accessor.  
+  Each square's status is kept in 4 bits, so very large fields take little memory.  The counts that the game status
+  depends on are kept up to date as squares change, so numMinesLeft() and isGameOver() take constant time, and
+  ending a game only visits the mines and the player's guesses, not the whole field.
+  The squares whose status changes are remembered until a client asks for them with forEachChangedSquare(), so
+  a view can update just those squares after each action.
  */
 public class VisibleField {
    // ----------------------------------------------------------   
@@ -31,13 +38,52 @@ public class VisibleField {
    public static final int INCORRECT_GUESS = 10;  // is displayed a specific way at the end of losing game
    public static final int EXPLODED_MINE = 11;   // the one you uncovered by mistake (that caused you to lose)
    // ----------------------------------------------------------   
+   
+   private static final int INITIAL_PENDING = 64;  // room for squares waiting to be expanded, before growing
+   private static final int MIN_STATUS = QUESTION;  // statuses are stored as their distance from this one, in 4 bits
+   
+   /**
+      Receives the squares whose status has changed, one at a time (see forEachChangedSquare).
+   */
+   public interface SquareVisitor {
+      /**
+         Called once for each changed square.
+         @param row  row of the square
+         @param col  col of the square
+      */
+      void visit(int row, int col);
+   }
   
    // <put instance variables here>
+   
+   /**
+      Representation invariant:
+      getStatus(row, col) - MIN_STATUS, which is always in [0, 14], is held in 4 bits of visibleField: the low 4 bits
+      of visibleField[(row * numCols + col) / 2] if row * numCols + col is even, the high 4 bits if it is odd.
+      numUncovered is the number of squares with a status in [0, 8], numGuesses the number with status MINE_GUESS,
+      and exploded is true iff some square has status EXPLODED_MINE.
+      Bit (row * numCols + col) % 64 of guessed[(row * numCols + col) / 64] is set iff (row, col) has status
+      MINE_GUESS; no bits are set outside guessed[firstGuessed .. lastGuessed].
+      gameOverShown is true iff gameFail or gamePass has been done since the last reset.
+      Bit (row * numCols + col) % 64 of changed[(row * numCols + col) / 64] is set iff the status of (row, col) has
+      changed since it was last passed to a SquareVisitor; no bits are set outside
+      changed[firstChanged .. lastChanged].
+   */
    private MineField mineField;
-   private int[][] visibleField;
+   private byte[] visibleField;
    private int numRows;
    private int numCols;
    private int numMines;
+   private long numUncovered;
+   private int numGuesses;
+   private boolean exploded;
+   private long[] guessed;
+   private int firstGuessed;
+   private int lastGuessed;
+   private boolean gameOverShown;
+   private long[] changed;
+   private int firstChanged;
+   private int lastChanged;
 
    /**
       Create a visible field that has the given underlying mineField.
@@ -51,9 +97,14 @@ public class VisibleField {
       numCols = mineField.numCols();
       numMines = mineField.numMines();
       
-      visibleField = new int[numRows][numCols];
+      visibleField = new byte[(int) (((long) numRows * numCols + 1) >>> 1)];
+      guessed = new long[(int) (((long) numRows * numCols + 63) >>> 6)];
+      firstGuessed = guessed.length;
+      lastGuessed = -1;
+      changed = new long[(int) (((long) numRows * numCols + 63) >>> 6)];
       
       resetGameDisplay();//initialize the display
+      forgetChanges();//the initial display is not a change
    }
    
    
@@ -62,11 +113,23 @@ public class VisibleField {
       MineField. 
    */     
    public void resetGameDisplay() {
-      for(int i = 0; i < numRows; i++){
-         for(int j = 0; j < numCols; j++){ 
-            visibleField[i][j] = COVERED; 
+      byte allCovered = (byte) ((code(COVERED) << 4) | code(COVERED));
+      for(int i = 0; i < visibleField.length; i++){
+         if(visibleField[i] != allCovered){//skips two covered squares at a time
+            if((visibleField[i] & 0xF) != code(COVERED)) { markChanged(2L * i); }
+            if(((visibleField[i] >>> 4) & 0xF) != code(COVERED) && 2L * i + 1 < (long) numRows * numCols){
+               markChanged(2L * i + 1);
+            }
+            visibleField[i] = allCovered;
          }
       }
+      numUncovered = 0;
+      numGuesses = 0;
+      exploded = false;
+      if(firstGuessed <= lastGuessed) { Arrays.fill(guessed, firstGuessed, lastGuessed + 1, 0L); }
+      firstGuessed = guessed.length;
+      lastGuessed = -1;
+      gameOverShown = false;
    }
   
    
@@ -88,7 +151,8 @@ public class VisibleField {
       PRE: getMineField().inRange(row, col)
     */
    public int getStatus(int row, int col) {
-      return visibleField[row][col];     
+      long loc = (long) row * numCols + col;
+      return ((visibleField[(int) (loc >>> 1)] >>> ((int) loc & 1) * 4) & 0xF) + MIN_STATUS;
    }
 
    
@@ -99,14 +163,7 @@ public class VisibleField {
       @return the number of mines left to guess.
     */
    public int numMinesLeft() {
-      int numLeft = numMines;
-      
-      for(int i = 0; i < numRows; i++){
-         for(int j = 0; j < numCols; j++){
-            if(visibleField[i][j] == MINE_GUESS) { numLeft--; }
-         }
-      }
-      return numLeft;     
+      return numMines - numGuesses;     
    }
  
    
@@ -119,9 +176,9 @@ public class VisibleField {
       PRE: getMineField().inRange(row, col)
     */
    public void cycleGuess(int row, int col) {
-      if(getStatus(row, col) == COVERED) { visibleField[row][col] = MINE_GUESS; }
-      else if(getStatus(row, col) == MINE_GUESS) { visibleField[row][col] = QUESTION; }
-      else if(getStatus(row, col) == QUESTION) { visibleField[row][col] = COVERED; }
+      if(getStatus(row, col) == COVERED) { setStatus(row, col, MINE_GUESS); }
+      else if(getStatus(row, col) == MINE_GUESS) { setStatus(row, col, QUESTION); }
+      else if(getStatus(row, col) == QUESTION) { setStatus(row, col, COVERED); }
    }
 
    
@@ -141,11 +198,11 @@ public class VisibleField {
     */
    public boolean uncover(int row, int col) {
       if(mineField.hasMine(row, col)){
-         visibleField[row][col] = EXPLODED_MINE;
+         setStatus(row, col, EXPLODED_MINE);
          return false;
       }
       else{
-         uncoverR(row, col);
+         uncoverRegion(row, col);
          return true;
       }  
    }
@@ -157,27 +214,39 @@ public class VisibleField {
       @return whether game over
     */
    public boolean isGameOver() {
-      int uncoverCount = 0;
-      
-      for (int i = 0; i < numRows; i++) {
-         for (int j = 0; j < numCols; j++) {
-            if (visibleField[i][j] == EXPLODED_MINE) {
-               gameFail();
-               return true;//lose the game
-            } 
-            else if(isUncovered(i, j)){
-               uncoverCount++;
-            }
-         }
+      if(exploded){
+         if(!gameOverShown) { gameFail(); }
+         return true;//lose the game
       }
-      if(uncoverCount == numRows * numCols - numMines){
-         gamePass();
+      if(numUncovered == (long) numRows * numCols - numMines){
+         if(!gameOverShown) { gamePass(); }
          return true;//win the game
       }
       return false;       
    }
  
    
+   /**
+      Passes each square whose status has changed since the last call (or since this VisibleField was created) to
+      visitor, in row-major order, and then forgets that those squares changed.  A square that changed more than once
+      is passed once.  A square whose status changed and then changed back may be passed too.
+      @param visitor  receives the changed squares; it may call the accessors of this VisibleField but not the mutators
+    */
+   public void forEachChangedSquare(SquareVisitor visitor) {
+      for(int word = firstChanged; word <= lastChanged; word++){
+         long bits = changed[word];
+         changed[word] = 0;
+         while(bits != 0){
+            long loc = ((long) word << 6) + Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;//clear the lowest set bit
+            visitor.visit((int) (loc / numCols), (int) (loc % numCols));
+         }
+      }
+      firstChanged = changed.length;
+      lastChanged = -1;
+   }
+ 
+   
    /**
       Returns whether this square has been uncovered.  (i.e., is in any one of the uncovered states, 
       vs. any one of the covered states).
@@ -187,7 +256,7 @@ public class VisibleField {
       PRE: getMineField().inRange(row, col)
     */
    public boolean isUncovered(int row, int col) {
-      if(visibleField[row][col] >= 0){
+      if(getStatus(row, col) >= 0){
          return true;
       }
       return false;       
@@ -196,57 +265,147 @@ public class VisibleField {
    // <put private methods here>
    
    /**
-      Uncover squares until the boundary's surroundings have mines.
+      Uncover the square at (row, col) and, if it has no adjacent mines, the whole region around it described
+      in uncover.
+      The squares with no adjacent mines whose neighbors are still to be uncovered wait in a long array that
+      grows as needed, rather than on the call stack, so one click can open a region of any size. Each square
+      is uncovered (and its adjacent mines counted) once, when it is first reached, so a square is never
+      put in that array twice.
       @param row of the square
       @param col of the square
       PRE: getMineField().inRange(row, col)
     */
-   private void uncoverR(int row, int col){
-      if(mineField.numAdjacentMines(row, col) > 0) {
-         visibleField[row][col] = mineField.numAdjacentMines(row, col);
-      } 
-      else{
-         visibleField[row][col] = 0;
+   private void uncoverRegion(int row, int col){
+      int numAdjacent = mineField.numAdjacentMines(row, col);
+      setStatus(row, col, numAdjacent);
+      if(numAdjacent > 0) { return; }
+
+      long[] pending = new long[INITIAL_PENDING];//each as row * numCols + col, which can pass Integer.MAX_VALUE
+      int numPending = 0;
+      pending[numPending++] = (long) row * numCols + col;
+      
+      while(numPending > 0){
+         long square = pending[--numPending];
+         int r = (int) (square / numCols);
+         int c = (int) (square % numCols);
+         int lastRow = Math.min(r + 1, numRows - 1);
+         int lastCol = Math.min(c + 1, numCols - 1);
          
-         for(int i = -1; i < 2; i++){
-            for(int j = -1; j < 2; j++){
-               if(i == 0 && j == 0) { continue; }//skip the same position
-               int rowNext = row + i;
-               int colNext = col + j;
-               if(!mineField.inRange(rowNext, colNext)) { continue;}
-               if(visibleField[rowNext][colNext] == COVERED || visibleField[rowNext][colNext] == QUESTION){
-                  uncoverR(rowNext, colNext);
+         for(int i = Math.max(r - 1, 0); i <= lastRow; i++){
+            for(int j = Math.max(c - 1, 0); j <= lastCol; j++){
+               int status = getStatus(i, j);
+               if(status != COVERED && status != QUESTION) { continue; }//uncovered, or guessed as a mine
+               numAdjacent = mineField.numAdjacentMines(i, j);
+               setStatus(i, j, numAdjacent);
+               if(numAdjacent == 0){
+                  if(numPending == pending.length) { pending = Arrays.copyOf(pending, 2 * numPending); }
+                  pending[numPending++] = (long) i * numCols + j;
                }
             }
-         } 
+         }
       }
    }
     
+   /**
+      Set the status of a square, update the counts of uncovered squares and guesses and the set of guessed squares,
+      and remember that the square changed.
+      @param row of the square
+      @param col of the square
+      @param status  the new status, one of the values getStatus can return
+      PRE: getMineField().inRange(row, col)
+    */
+   private void setStatus(int row, int col, int status){
+      long loc = (long) row * numCols + col;
+      int index = (int) (loc >>> 1);
+      int shift = ((int) loc & 1) * 4;
+      int old = ((visibleField[index] >>> shift) & 0xF) + MIN_STATUS;
+      visibleField[index] = (byte) ((visibleField[index] & ~(0xF << shift)) | (code(status) << shift));
+      if(old == status) { return; }
+      markChanged(loc);
+      
+      if(old >= 0 && old < MINE) { numUncovered--; }
+      if(status >= 0 && status < MINE) { numUncovered++; }
+      if(old == MINE_GUESS){
+         numGuesses--;
+         guessed[(int) (loc >>> 6)] &= ~(1L << loc);
+      }
+      if(status == MINE_GUESS){
+         numGuesses++;
+         int word = (int) (loc >>> 6);
+         guessed[word] |= 1L << loc;
+         firstGuessed = Math.min(firstGuessed, word);
+         lastGuessed = Math.max(lastGuessed, word);
+      }
+      if(status == EXPLODED_MINE) { exploded = true; }
+   }
+   
+   /**
+      Remember that a square's status has changed.
+      @param loc  row * numCols + col of the square
+    */
+   private void markChanged(long loc){
+      int word = (int) (loc >>> 6);
+      changed[word] |= 1L << loc;
+      firstChanged = Math.min(firstChanged, word);
+      lastChanged = Math.max(lastChanged, word);
+   }
+   
+   /**
+      Forget which squares have changed.
+    */
+   private void forgetChanges(){
+      Arrays.fill(changed, 0L);
+      firstChanged = changed.length;
+      lastChanged = -1;
+   }
+   
+   /**
+      Returns the 4-bit code that a status is stored as.
+      @param status  one of the values getStatus can return
+      @return the code, in [0, 15]
+    */
+   private static int code(int status){
+      return status - MIN_STATUS;
+   }
+    
    /**
       Change the status of incorrect guess and missing mine when losing the game.
+      Only the player's guesses and the mines are visited.
     */
    private void gameFail(){
-      for(int i = 0; i < numRows; i++){
-         for(int j = 0; j < numCols; j++){
-            if(visibleField[i][j] == MINE_GUESS && (!mineField.hasMine(i, j))){//when guessing a mine but there is no mine in fact
-               visibleField[i][j] = INCORRECT_GUESS;
-            }
-            else if(mineField.hasMine(i, j) && visibleField[i][j] != EXPLODED_MINE && visibleField[i][j] != MINE_GUESS){//when missing the mine
-               visibleField[i][j] = MINE;
+      gameOverShown = true;
+      for(int word = firstGuessed; word <= lastGuessed; word++){
+         long bits = guessed[word];
+         while(bits != 0){
+            long loc = ((long) word << 6) + Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;//clear the lowest set bit
+            int i = (int) (loc / numCols);
+            int j = (int) (loc % numCols);
+            if(!mineField.hasMine(i, j)){//when guessing a mine but there is no mine in fact
+               setStatus(i, j, INCORRECT_GUESS);
             }
          }
       }
+      for(long loc = mineField.nextMine(0); loc >= 0; loc = mineField.nextMine(loc + 1)){
+         int i = (int) (loc / numCols);
+         int j = (int) (loc % numCols);
+         if(getStatus(i, j) != EXPLODED_MINE && getStatus(i, j) != MINE_GUESS){//when missing the mine
+            setStatus(i, j, MINE);
+         }
+      }
    }
    
    /**
       Change the status of covered mine when winning the game.
+      Only the mines are visited.
     */
    private void gamePass(){
-      for(int i = 0; i < numRows; i++){
-         for(int j = 0; j < numCols; j++){
-            if(mineField.hasMine(i, j) && visibleField[i][j] == COVERED){//when there is a covered mine
-               visibleField[i][j] = MINE_GUESS;
-            }
+      gameOverShown = true;
+      for(long loc = mineField.nextMine(0); loc >= 0; loc = mineField.nextMine(loc + 1)){
+         int i = (int) (loc / numCols);
+         int j = (int) (loc % numCols);
+         if(getStatus(i, j) == COVERED){//when there is a covered mine
+            setStatus(i, j, MINE_GUESS);
          }
       }
    }
@@ -1,59 +1,102 @@
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 import java.util.Set;
-import java.util.HashSet;
-import java.io.File;
+import java.util.TreeMap;
 
 /**
-   A dictionary of all anagram sets. 
+   A dictionary of all anagram sets.
    Note: the processing is case-sensitive; so if the dictionary has all lower
    case words, you will likely want any string you test to have all lower case
    letters too, and likewise if the dictionary words are all upper case.
+   Words can be added and removed while other threads are querying the dictionary. Every query reads
+   one immutable version of the contents, and an update builds the next version on the side and then
+   publishes it with a single volatile write, so queries never wait for an update and never see half
+   of one. Lists returned by queries belong to the version they came from and must not be modified.
+   A dictionary can be compacted (see compact) to pack its words into one byte array, for programs
+   that keep many dictionaries in memory at once.
  */
 public class AnagramDictionary {
+   private static final List<String> NO_WORDS = Collections.emptyList();
+   private static final ScoredWord[] NO_SCORED_WORDS = new ScoredWord[0];
+
    /**
-     Representation invariant: keys for anagramDict are canonical string entry, and values are anagram string entries.
-     E.g. if key: canonical string entry, like 'abc'
-     then value: anagram string entries, like {'abc', 'bac', 'bca', ... }
+      The current version of the dictionary. It is replaced, never modified, by update.
    */
-   private Map<String, ArrayList<String>> anagramDict;
+   private volatile Contents contents;
 
    /**
       Create an anagram dictionary from the list of words given in the file
-      indicated by fileName.  
+      indicated by fileName.
       @param fileName  the name of the file to read from
       @throws FileNotFoundException  if the file is not found
       @throws IllegalDictionaryException  if the dictionary has any duplicate words
     */
    public AnagramDictionary(String fileName) throws FileNotFoundException, IllegalDictionaryException {
-      anagramDict = new HashMap<String, ArrayList<String>>();
-      
-      File file = new File(fileName);
-      Scanner in = new Scanner(file);
-      
-      while(in.hasNext()){
-         String str = in.next();
-         String sortedStr = getSortedForm(str);
-         ArrayList<String> arrList;
-         
-         if(anagramDict.containsKey(sortedStr)){
-            arrList = new ArrayList<String>(anagramDict.get(sortedStr));
-            Set<String> keySet = new HashSet<String>(arrList);//to find duplicate words in O(1) time complexity
-            
-            if(keySet.contains(str)){ throw new IllegalDictionaryException(str); }
-         }
-         else{
-            arrList = new ArrayList<String>();
-         }
-         arrList.add(str);
-         anagramDict.put(sortedStr, arrList);//update the map
-      }                                
+      this(fileName, false);
    }
-   
+
+   /**
+      Create an anagram dictionary from the list of words given in the file
+      indicated by fileName, optionally parsing chunks of a large file in parallel.
+      The file is streamed once and every word is checked for duplicates as it is read.
+      @param fileName  the name of the file to read from
+      @param parallel  whether to parse chunks of the file on all available cores
+      @throws FileNotFoundException  if the file is not found
+      @throws IllegalDictionaryException  if the dictionary has any duplicate words
+    */
+   public AnagramDictionary(String fileName, boolean parallel) throws FileNotFoundException, IllegalDictionaryException {
+      contents = Contents.build(new DictionaryLoader(fileName).load(parallel), 0);
+   }
+
+   /**
+      Create an anagram dictionary that answers queries straight from a compiled snapshot.
+      @param snapshot  the opened snapshot
+    */
+   private AnagramDictionary(DictionarySnapshot snapshot) {
+      contents = new Contents(snapshot);
+   }
+
+   /**
+      Open an anagram dictionary from a snapshot file written by writeSnapshot. The file is memory-mapped,
+      so opening it costs no parsing or sorting, and processes that open the same file share its pages.
+      @param fileName  the name of the snapshot file
+      @return a dictionary backed by the snapshot
+      @throws IOException  if the file cannot be read or is not a valid snapshot
+    */
+   public static AnagramDictionary openSnapshot(String fileName) throws IOException {
+      return new AnagramDictionary(new DictionarySnapshot(fileName));
+   }
+
+   /**
+      Write this dictionary to a snapshot file that can later be opened with openSnapshot.
+      @param fileName  the name of the file to write to
+      @throws IOException  if the file cannot be written
+    */
+   public void writeSnapshot(String fileName) throws IOException {
+      Contents c = contents;
+      DictionarySnapshot.write(fileName, c.sortedBuckets(), c.wordGraph, c.wordScores, c.feasibility());
+   }
+
+   /**
+      Repack the words of the dictionary into a WordArena: one byte array holding every word, with each
+      anagram set a range of it, in place of a String per word and a list and a hash table entry per set.
+      The dictionary keeps answering the same queries, but takes a fraction of the memory; the price is
+      that getAnagramsOf creates the Strings it returns, and looks sets up by binary search rather than
+      by hashing. Later updates keep the dictionary compact.
+    */
+   public synchronized void compact() {
+      Contents c = contents;
+      if(c.arena == null){ contents = Contents.compact(c); }
+   }
+
 
    /**
       Get all anagrams of the given string. This method is case-sensitive.
@@ -62,27 +105,505 @@ public class AnagramDictionary {
       @return a list of the anagrams of s
     */
    public ArrayList<String> getAnagramsOf(String s) {
+      Contents c = contents;
+      if((c.snapshot != null || c.arena != null) && !c.feasibility().mayHaveAnagrams(s)){
+         return new ArrayList<String>();//skip the sort and the binary search
+      }
+      if(c.snapshot != null){
+         return c.snapshot.getBucket(getSortedForm(s));
+      }
+      if(c.arena != null){
+         int bucket = c.arena.bucketOf(s);
+         return (bucket >= 0) ? c.arena.copyOfBucket(bucket) : new ArrayList<String>();
+      }
+
+      long sig = c.letterSignature.of(s);//no sorting or allocation for plain lower case words
+      if(sig != LetterSignature.NONE){
+         int bucket = c.index.get(sig);
+         return (bucket >= 0) ? c.buckets.get(bucket) : new ArrayList<String>();
+      }
+
+      if(!c.feasibility().mayHaveAnagrams(s)){ return new ArrayList<String>(); }
       String sortedStr = getSortedForm(s);
-      
-      if(anagramDict.containsKey(sortedStr)){
-         return anagramDict.get(sortedStr);//key of a sorted string already exists
+      if(c.anagramDict.containsKey(sortedStr)){
+         return c.anagramDict.get(sortedStr);//key of a sorted string already exists
       }
       else{
          return new ArrayList<String>();//return a empty Arraylist if the key of a sorted string cannot be found
       }
    }
-   
+
+   /**
+      Get all the words that can be made from some or all of the tiles of rack, in alphabetical order.
+      This method is case-sensitive, like getAnagramsOf. Blank tiles (see Rack.isBlank) stand for any letter.
+      Only the branches of the word graph that the rack's letters and blanks allow are visited, so long
+      racks don't cost one lookup per subset, and blanks don't cost one search per substituted letter.
+      E.g. rack = "cmal" gives [al, am, cam, calm, clam, la, lac, lam, ma, mac, mal].
+      @param rack  the tiles available; each may be used as many times as it occurs in rack
+      @return a new list of the words that can be made from rack
+    */
+   public ArrayList<String> getWordsFrom(String rack) {
+      return contents.wordGraph.wordsFrom(rack);
+   }
+
+   /**
+      Get all the words that can be made from some or all of the tiles of rack, with their scores,
+      in alphabetical order. The scores are the ones computed when the dictionary was built, less the
+      value of any letters played by blanks, so nothing is scored per query.
+      @param rack  the tiles available; each may be used as many times as it occurs in rack
+      @return a new list of the words that can be made from rack, with their scores
+    */
+   public ArrayList<ScoredWord> getScoredWordsFrom(String rack) {
+      Contents c = contents;//the graph and the scores must come from the same version
+      ArrayList<ScoredWord> words = new ArrayList<ScoredWord>();
+      c.wordGraph.search(rack, (path, length, rank, blankValue) ->
+            words.add(new ScoredWord(new String(path, 0, length), c.wordScores[rank] - blankValue)));
+      return words;
+   }
+
+   /**
+      Get the k best-scoring words that can be made from some or all of the tiles of rack, scored with
+      the ScoreTable letter values (a letter played by a blank scores zero). Ties are broken alphabetically.
+      Branches that can't beat the k-th best word found so far are not explored.
+      @param rack  the tiles available; each may be used as many times as it occurs in rack
+      @param k  the number of words wanted
+      @return a new list of at most k words, best first
+    */
+   public ArrayList<ScoredWord> getTopWordsFrom(String rack, int k) {
+      return contents.wordGraph.topWordsFrom(rack, k);
+   }
+
+   /**
+      Get every word that matches a crossword-style pattern, such as "c?t*", where '?' stands for any one
+      letter and '*' for any run of letters. See PatternIndex. This method is case-sensitive.
+      The index behind it is built on the first pattern query (and again on the first one after an update).
+      @param pattern  the pattern
+      @return a new list of the matching words, in order of length and then alphabetically
+    */
+   public ArrayList<String> getMatches(String pattern) {
+      return contents.patternIndex().match(pattern);
+   }
+
+   /**
+      Get every word that matches a crossword-style pattern and has a length in the given range. If rack
+      is not null, the letters the pattern's wildcards stand for must also come from the tiles of rack,
+      blanks included. See PatternIndex.
+      @param pattern  the pattern
+      @param minLength  the shortest length wanted
+      @param maxLength  the longest length wanted
+      @param rack  the tiles the wildcards must be filled from, or null to allow any letters
+      @return a new list of the matching words, in order of length and then alphabetically
+    */
+   public ArrayList<String> getMatches(String pattern, int minLength, int maxLength, String rack) {
+      return contents.patternIndex().match(pattern, minLength, maxLength, rack);
+   }
+
+   /**
+      Get the word graph of all the words in the dictionary, for callers that walk it directly,
+      such as MoveGenerator.
+      @return the word graph of the current version; shared, and never modified
+    */
+   public WordGraph getWordGraph() {
+      return contents.wordGraph;
+   }
+
+   /**
+      Get quick tests that rule out most letter sets that have no anagrams in the dictionary, for rack
+      searches that try many sub-racks and want to skip lookups that can't succeed. getAnagramsOf(char[], int)
+      applies them itself before any lookup. The summary is built on first use (and again after an update).
+      @return the feasibility summary of the current version; shared, and never modified
+    */
+   public FeasibilitySummary getFeasibility() {
+      return contents.feasibility();
+   }
+
+   /**
+      Get the version number of the dictionary's contents: 0 when it is loaded, and one more after
+      every update, so callers that cache query results can tell when they are stale.
+      @return the current version number
+    */
+   public long getVersion() {
+      return contents.version;
+   }
+
+   /**
+      Get all anagrams of the given letters, without creating anything when the letters have a
+      signature (as lower case words almost always do). This method is case-sensitive, like getAnagramsOf(String).
+      It is meant for callers that enumerate many candidate letter sets into a reused array, such as
+      Rack.forEachSubset.
+      @param letters array holding the letters to process, in letters[0 .. length-1]
+      @param length the number of letters
+      @return a list of the anagrams of the letters; callers must not modify it
+    */
+   public List<String> getAnagramsOf(char[] letters, int length) {
+      Contents c = contents;
+      if(!c.feasibility().mayHaveAnagrams(letters, length)){ return NO_WORDS; }
+      return c.anagramsOf(letters, length);
+   }
+
+   /**
+      Get all anagrams of the given letters with their scores, like getAnagramsOf(char[], int). The scores
+      are the ones stored when the dictionary was built; anagrams are made of the same tiles, so only the
+      first one's is looked up. Unlike getAnagramsOf(char[], int), the feasibility summary is not applied
+      first: this is for callers that have already applied it, such as SubRackMemo.
+      @param letters array holding the letters to process, in letters[0 .. length-1]
+      @param length the number of letters
+      @return a new array of the anagrams of the letters with their scores
+    */
+   public ScoredWord[] getScoredAnagramsOf(char[] letters, int length) {
+      Contents c = contents;//the words and the scores must come from the same version
+      List<String> words = c.anagramsOf(letters, length);
+      if(words.isEmpty()){ return NO_SCORED_WORDS; }
+
+      int score = c.wordScores[c.wordGraph.rankOf(words.get(0))];
+      ScoredWord[] scored = new ScoredWord[words.size()];
+      for(int i = 0; i < scored.length; i++){
+         scored[i] = new ScoredWord(words.get(i), score);
+      }
+      return scored;
+   }
+
+   /**
+      Add a word to the dictionary. See update.
+      @param word  the word to add
+      @throws IllegalDictionaryException  if the dictionary already has the word
+    */
+   public void addWord(String word) throws IllegalDictionaryException {
+      update(Collections.singletonList(word), NO_WORDS);
+   }
+
+   /**
+      Remove a word from the dictionary, if it is there. See update.
+      @param word  the word to remove
+    */
+   public void removeWord(String word) {
+      try{
+         update(NO_WORDS, Collections.singletonList(word));
+      }
+      catch(IllegalDictionaryException e){
+         throw new IllegalStateException(e);//only adding a word can make a duplicate
+      }
+   }
+
+   /**
+      Apply a patch to the word list: first remove the words in removed (ignoring any that are not in
+      the dictionary), then add the words in added. The patch is applied all at once or not at all.
+      Queries running at the same time keep answering from the previous version until the new one is
+      complete; the anagram sets the patch doesn't touch are shared between the two versions.
+      Updates are applied one at a time. Each one rebuilds the word graph of the whole word list, so
+      batching many changes into one patch is much cheaper than applying them one by one.
+      @param added  the words to add
+      @param removed  the words to remove
+      @throws IllegalDictionaryException  if a word in added is already in the dictionary (after the
+              removals) or is in added twice; the dictionary is then left unchanged
+    */
+   public synchronized void update(Collection<String> added, Collection<String> removed) throws IllegalDictionaryException {
+      Contents c = contents;
+      Contents next = c;
+      if(c.snapshot != null || c.arena != null){ next = Contents.build(c.sortedBuckets(), c.version); }
+      next = next.patch(added, removed);
+      contents = (c.arena != null) ? Contents.compact(next) : next;
+   }
+
    /**
       Get a sorted string from a specific string.
       E.g. s = "bca", then return "abc".
       @param s string to process
       @return a list of sorted String
     */
-   private String getSortedForm(String s){
+   private static String getSortedForm(String s){
       char[] charArr = s.toCharArray();
       Arrays.sort(charArr);
-      
+
       return new String(charArr);
-   }  
-   
+   }
+
+   /**
+      One version of the dictionary's contents. A version is never modified once it is published, so any
+      number of threads can read it without locking.
+    */
+   private static class Contents {
+      /**
+        Representation invariant: every anagram set is stored exactly once, either
+        - in buckets, at the position index maps its letter signature to, if its words have a signature, or
+        - in anagramDict, keyed by its canonical string entry, if they don't (see LetterSignature).
+        A set whose words have all been removed stays where it was, empty.
+        E.g. if key: canonical string entry, like 'abc'
+        then value: anagram string entries, like {'abc', 'bac', 'bca', ... }
+        If snapshot is non-null, all the other fields except wordGraph, wordScores and version are null.
+        If arena is non-null, it holds every anagram set, and index, buckets and anagramDict are null.
+      */
+      private LetterSignature letterSignature;
+      private SignatureIndex index;
+      private ArrayList<ArrayList<String>> buckets;
+      private Map<String, ArrayList<String>> anagramDict;
+      private WordGraph wordGraph;
+      private int[] wordScores;  // wordScores[i] is the ScoreTable score of the word with rank i in wordGraph
+      private DictionarySnapshot snapshot;  // the compiled snapshot this version reads from, or null
+      private WordArena arena;  // the packed anagram sets of a compacted version, or null
+      private long version;
+      private volatile PatternIndex patternIndex;  // built on first use
+      private volatile FeasibilitySummary feasibility;  // built on first use
+
+      /**
+         Create an empty version, to be filled in by build or patch.
+       */
+      private Contents(){
+      }
+
+      /**
+         Create a version that answers queries straight from a compiled snapshot.
+         @param snapshot  the opened snapshot
+       */
+      private Contents(DictionarySnapshot snapshot){
+         this.snapshot = snapshot;
+         this.wordGraph = snapshot.getWordGraph();
+         this.wordScores = snapshot.getWordScores();
+         this.feasibility = snapshot.getFeasibility();//stored with it, so no bucket is ever decoded to build it
+      }
+
+      /**
+         Index the loaded anagram sets by letter signature, keeping the few sets that have no signature
+         in anagramDict, and build the word graph.
+         @param loaded  anagram sets keyed by their canonical string entry
+         @param version  the version number
+         @return the new version
+       */
+      public static Contents build(Map<String, ArrayList<String>> loaded, long version){
+         Contents c = new Contents();
+         c.version = version;
+         c.letterSignature = LetterSignature.forWords(loaded.keySet());
+         c.index = new SignatureIndex(loaded.size());
+         c.buckets = new ArrayList<ArrayList<String>>(loaded.size());
+         c.anagramDict = new HashMap<String, ArrayList<String>>();
+
+         for(Map.Entry<String, ArrayList<String>> entry : loaded.entrySet()){
+            ArrayList<String> bucket = entry.getValue();
+            bucket.trimToSize();
+            long sig = c.letterSignature.of(entry.getKey());
+
+            if(sig == LetterSignature.NONE){
+               c.anagramDict.put(entry.getKey(), bucket);
+            }
+            else{
+               c.index.put(sig, c.buckets.size());
+               c.buckets.add(bucket);
+            }
+         }
+         c.buildGraph();
+         return c;
+      }
+
+      /**
+         Make a compacted copy of a version, sharing its word graph and scores.
+         @param c  the version to copy
+         @return the new version, with the same version number
+       */
+      public static Contents compact(Contents c){
+         Contents packed = new Contents();
+         packed.version = c.version;
+         TreeMap<String, ArrayList<String>> sets = c.sortedBuckets();
+         packed.letterSignature = (c.letterSignature != null) ? c.letterSignature : LetterSignature.forWords(sets.keySet());
+         packed.arena = new WordArena(sets, packed.letterSignature);
+         packed.wordGraph = c.wordGraph;
+         packed.wordScores = c.wordScores;
+         return packed;
+      }
+
+      /**
+         Make the next version: a copy of this one with a patch applied. Only the anagram sets the patch
+         touches are copied; the rest are shared with this version, which is left unchanged.
+         @param added  the words to add
+         @param removed  the words to remove
+         @return the new version
+         @throws IllegalDictionaryException  if a word in added is already in the dictionary (after the
+                 removals) or is in added twice
+       */
+      public Contents patch(Collection<String> added, Collection<String> removed) throws IllegalDictionaryException {
+         Contents next = new Contents();
+         next.version = version + 1;
+         next.letterSignature = letterSignature;
+         next.index = new SignatureIndex(index);
+         next.buckets = new ArrayList<ArrayList<String>>(buckets);
+         next.anagramDict = new HashMap<String, ArrayList<String>>(anagramDict);
+         Set<ArrayList<String>> copied = Collections.newSetFromMap(new IdentityHashMap<ArrayList<String>, Boolean>());
+
+         for(String word : removed){
+            ArrayList<String> bucket = next.bucketFor(word, false, copied);
+            if(bucket != null){ bucket.remove(word); }
+         }
+         for(String word : added){
+            ArrayList<String> bucket = next.bucketFor(word, true, copied);
+            if(bucket.contains(word)){ throw new IllegalDictionaryException(word); }
+            bucket.add(word);
+         }
+         next.buildGraph();
+         return next;
+      }
+
+      /**
+         Find the anagram set of a word in a version that patch is still building. The first time a set
+         is found it is replaced with a private copy, so the version it came from is not modified.
+         @param word  the word whose set is wanted
+         @param create  whether to add an empty set if the word's set doesn't exist yet
+         @param copied  the sets that are already private to this version
+         @return the private set, or null if there is none and create is false
+       */
+      private ArrayList<String> bucketFor(String word, boolean create, Set<ArrayList<String>> copied){
+         long sig = letterSignature.of(word);
+
+         if(sig != LetterSignature.NONE){
+            int i = index.get(sig);
+            if(i < 0){
+               if(!create){ return null; }
+               i = buckets.size();
+               index.put(sig, i);
+               buckets.add(new ArrayList<String>(2));
+               copied.add(buckets.get(i));
+            }
+            if(!copied.contains(buckets.get(i))){
+               buckets.set(i, new ArrayList<String>(buckets.get(i)));
+               copied.add(buckets.get(i));
+            }
+            return buckets.get(i);
+         }
+
+         String key = getSortedForm(word);
+         ArrayList<String> bucket = anagramDict.get(key);
+         if(bucket == null){
+            if(!create){ return null; }
+            bucket = new ArrayList<String>(2);
+            copied.add(bucket);
+            anagramDict.put(key, bucket);
+         }
+         if(!copied.contains(bucket)){
+            bucket = new ArrayList<String>(bucket);
+            copied.add(bucket);
+            anagramDict.put(key, bucket);
+         }
+         return bucket;
+      }
+
+      /**
+         Build the word graph of every word in this version and precompute the scores of the words.
+       */
+      private void buildGraph(){
+         ArrayList<String> allWords = allWords();
+         Collections.sort(allWords);//alphabetical order is the order of graph rank
+         wordGraph = new WordGraph(allWords);
+         wordScores = new int[allWords.size()];
+         for(int i = 0; i < wordScores.length; i++){
+            wordScores[i] = ScoreTable.scoreOf(allWords.get(i));
+         }
+      }
+
+      /**
+         Get the pattern index of this version's words, building it the first time. Two threads may both
+         build it; either result is correct, and one of them is kept.
+         @return the pattern index
+       */
+      public PatternIndex patternIndex(){
+         PatternIndex result = patternIndex;
+         if(result == null){
+            result = new PatternIndex(allWords());
+            patternIndex = result;
+         }
+         return result;
+      }
+
+      /**
+         Get all anagrams of the given letters in this version, without applying the feasibility summary.
+         Nothing is created when the letters have a signature, unless this version reads from a snapshot.
+         @param letters  array holding the letters to process, in letters[0 .. length-1]
+         @param length  the number of letters
+         @return a list of the anagrams of the letters; callers must not modify it
+       */
+      public List<String> anagramsOf(char[] letters, int length){
+         if(snapshot == null){
+            long sig = 0;
+            for(int i = 0; i < length && sig != LetterSignature.NONE; i++){
+               sig = letterSignature.add(sig, letters[i]);
+            }
+            if(sig != LetterSignature.NONE){
+               if(arena != null){//a view that creates each word only when it is asked for
+                  int bucket = arena.bucketOf(sig);
+                  return (bucket >= 0) ? arena.bucket(bucket) : NO_WORDS;
+               }
+               int bucket = index.get(sig);
+               return (bucket >= 0) ? buckets.get(bucket) : NO_WORDS;
+            }
+         }
+
+         String s = new String(letters, 0, length);
+         List<String> words;
+         if(snapshot != null){ words = snapshot.getBucket(getSortedForm(s)); }
+         else if(arena != null){
+            int bucket = arena.bucketOf(s);
+            words = (bucket >= 0) ? arena.bucket(bucket) : NO_WORDS;
+         }
+         else{ words = anagramDict.get(getSortedForm(s)); }
+         return (words == null || words.isEmpty()) ? NO_WORDS : words;
+      }
+
+      /**
+         Get the feasibility summary of this version's words, building it the first time (a snapshot's is
+         read when the snapshot is opened). Two threads may both build it; either result is correct, and one
+         of them is kept.
+         @return the feasibility summary
+       */
+      public FeasibilitySummary feasibility(){
+         FeasibilitySummary result = feasibility;
+         if(result == null){
+            result = new FeasibilitySummary(allWords());
+            feasibility = result;
+         }
+         return result;
+      }
+
+      /**
+         Get every word of this version.
+         @return a new list of the words, in no particular order
+       */
+      private ArrayList<String> allWords(){
+         ArrayList<String> allWords = new ArrayList<String>();
+         if(snapshot != null){
+            for(ArrayList<String> bucket : sortedBuckets().values()){ allWords.addAll(bucket); }
+            return allWords;
+         }
+         if(arena != null){
+            for(int b = 0; b < arena.numBuckets(); b++){ allWords.addAll(arena.bucket(b)); }
+            return allWords;
+         }
+         for(ArrayList<String> bucket : buckets){ allWords.addAll(bucket); }
+         for(ArrayList<String> bucket : anagramDict.values()){ allWords.addAll(bucket); }
+         return allWords;
+      }
+
+      /**
+         Get every non-empty anagram set of this version, keyed by its canonical string entry.
+         @return the anagram sets, in order of their keys
+       */
+      public TreeMap<String, ArrayList<String>> sortedBuckets(){
+         TreeMap<String, ArrayList<String>> sortedDict = new TreeMap<String, ArrayList<String>>();
+
+         if(arena != null){
+            for(int b = 0; b < arena.numBuckets(); b++){ sortedDict.put(arena.keyOf(b), arena.copyOfBucket(b)); }
+         }
+         else if(snapshot == null){
+            for(Map.Entry<String, ArrayList<String>> entry : anagramDict.entrySet()){
+               if(!entry.getValue().isEmpty()){ sortedDict.put(entry.getKey(), entry.getValue()); }
+            }
+            for(ArrayList<String> bucket : buckets){
+               if(!bucket.isEmpty()){ sortedDict.put(getSortedForm(bucket.get(0)), bucket); }
+            }
+         }
+         else{
+            for(int i = 0; i < snapshot.numKeys(); i++){
+               String key = snapshot.keyAt(i);
+               sortedDict.put(key, snapshot.getBucket(key));
+            }
+         }
+         return sortedDict;
+      }
+   }
 }
\ No newline at end of file
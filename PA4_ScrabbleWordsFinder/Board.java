@@ -0,0 +1,198 @@
+/**
+   A 15x15 Scrabble board: the tiles played so far and the premium squares.
+   Rows and columns are numbered from 0; tiles are lower case letters, and a tile that is a blank
+   remembers the letter it stands for but scores zero.
+ */
+public class Board {
+   /**
+      Representation invariant:
+      letters[r][c] is the letter on square (r, c), or EMPTY; blank[r][c] is true only if the square has
+      a tile and that tile is a blank. letterMult and wordMult hold the premium of each square, which
+      counts only for a tile played on it in the current move.
+      numTiles is the number of squares that have a tile.
+   */
+   public static final int SIZE = 15;
+   public static final int CENTER = SIZE / 2;
+   public static final char EMPTY = 0;
+
+   // the standard premium squares: T triple word, D double word (and the centre star), t triple letter, d double letter
+   private static final String[] STANDARD_LAYOUT = {
+      "T..d...T...d..T",
+      ".D...t...t...D.",
+      "..D...d.d...D..",
+      "d..D...d...D..d",
+      "....D.....D....",
+      ".t...t...t...t.",
+      "..d...d.d...d..",
+      "T..d...D...d..T",
+      "..d...d.d...d..",
+      ".t...t...t...t.",
+      "....D.....D....",
+      "d..D...d...D..d",
+      "..D...d.d...D..",
+      ".D...t...t...D.",
+      "T..d...T...d..T"
+   };
+
+   private char[][] letters = new char[SIZE][SIZE];
+   private boolean[][] blank = new boolean[SIZE][SIZE];
+   private int[][] letterMult = new int[SIZE][SIZE];
+   private int[][] wordMult = new int[SIZE][SIZE];
+   private int numTiles;
+
+   /**
+      Create an empty board with the standard premium squares.
+   */
+   public Board(){
+      for(int r = 0; r < SIZE; r++){
+         for(int c = 0; c < SIZE; c++){
+            char premium = STANDARD_LAYOUT[r].charAt(c);
+            letterMult[r][c] = (premium == 't') ? 3 : (premium == 'd') ? 2 : 1;
+            wordMult[r][c] = (premium == 'T') ? 3 : (premium == 'D') ? 2 : 1;
+         }
+      }
+   }
+
+   /**
+      Whether a square is on the board.
+      @param row the row of the square
+      @param col the column of the square
+      @return whether (row, col) is on the board
+   */
+   public static boolean inRange(int row, int col){
+      return row >= 0 && row < SIZE && col >= 0 && col < SIZE;
+   }
+
+   /**
+      Whether a square has a tile.
+      @param row the row of the square
+      @param col the column of the square
+      @return whether (row, col) has a tile
+      PRE: inRange(row, col)
+   */
+   public boolean hasTile(int row, int col){
+      return letters[row][col] != EMPTY;
+   }
+
+   /**
+      Get the letter on a square.
+      @param row the row of the square
+      @param col the column of the square
+      @return the letter of the tile on (row, col), or EMPTY
+      PRE: inRange(row, col)
+   */
+   public char letterAt(int row, int col){
+      return letters[row][col];
+   }
+
+   /**
+      Whether the tile on a square is a blank.
+      @param row the row of the square
+      @param col the column of the square
+      @return whether (row, col) has a blank tile
+      PRE: inRange(row, col)
+   */
+   public boolean isBlankAt(int row, int col){
+      return blank[row][col];
+   }
+
+   /**
+      Get the letter premium of a square.
+      @param row the row of the square
+      @param col the column of the square
+      @return 2 or 3 for a double or triple letter square, 1 otherwise
+      PRE: inRange(row, col)
+   */
+   public int letterMultiplier(int row, int col){
+      return letterMult[row][col];
+   }
+
+   /**
+      Get the word premium of a square.
+      @param row the row of the square
+      @param col the column of the square
+      @return 2 or 3 for a double or triple word square, 1 otherwise
+      PRE: inRange(row, col)
+   */
+   public int wordMultiplier(int row, int col){
+      return wordMult[row][col];
+   }
+
+   /**
+      Get the number of tiles on the board.
+      @return the number of squares that have a tile
+   */
+   public int numTiles(){
+      return numTiles;
+   }
+
+   /**
+      Put a tile on a square.
+      @param row the row of the square
+      @param col the column of the square
+      @param letter the letter of the tile (for a blank, the letter it stands for)
+      @param isBlank whether the tile is a blank
+      PRE: inRange(row, col) and !hasTile(row, col)
+   */
+   public void setTile(int row, int col, char letter, boolean isBlank){
+      letters[row][col] = letter;
+      blank[row][col] = isBlank;
+      numTiles++;
+   }
+
+   /**
+      Play a move: put its tiles on every square of its word that doesn't have one yet.
+      @param move the move to play
+      PRE: move was generated for this board
+   */
+   public void play(Move move){
+      String word = move.getWord();
+      int dr = move.isAcross() ? 0 : 1;
+      int dc = move.isAcross() ? 1 : 0;
+
+      for(int i = 0; i < word.length(); i++){
+         int r = move.getRow() + i * dr;
+         int c = move.getCol() + i * dc;
+         char ch = word.charAt(i);
+         if(!hasTile(r, c)){ setTile(r, c, Character.toLowerCase(ch), Character.isUpperCase(ch)); }
+      }
+   }
+
+   /**
+      Get a copy of this board flipped about its main diagonal, so that columns become rows.
+      A move generator that only looks along rows can then find the down moves too.
+      @return the transposed board
+   */
+   public Board transposed(){
+      Board t = new Board();
+      for(int r = 0; r < SIZE; r++){
+         for(int c = 0; c < SIZE; c++){
+            t.letters[c][r] = letters[r][c];
+            t.blank[c][r] = blank[r][c];
+            t.letterMult[c][r] = letterMult[r][c];
+            t.wordMult[c][r] = wordMult[r][c];
+         }
+      }
+      t.numTiles = numTiles;
+      return t;
+   }
+
+   /**
+      Get the board as 15 lines of 15 characters: '.' for an empty square, the letter for a tile,
+      and the letter in upper case for a blank.
+      @return the board as text
+   */
+   @Override
+   public String toString(){
+      StringBuilder sb = new StringBuilder();
+      for(int r = 0; r < SIZE; r++){
+         for(int c = 0; c < SIZE; c++){
+            if(!hasTile(r, c)){ sb.append('.'); }
+            else if(blank[r][c]){ sb.append(Character.toUpperCase(letters[r][c])); }
+            else{ sb.append(letters[r][c]); }
+         }
+         sb.append('\n');
+      }
+      return sb.toString();
+   }
+}
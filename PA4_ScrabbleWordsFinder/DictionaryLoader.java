@@ -0,0 +1,265 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+   Reads a word list into anagram buckets in one streaming pass.
+   Words are separated by whitespace, like java.util.Scanner tokens, and decoded with the platform charset.
+   Every word is checked for duplicates against its own anagram bucket as it is read, so loading is linear in
+   the size of the file (buckets hold only a few words).
+   Large files can be split into whitespace-aligned chunks that are parsed in parallel and then merged.
+ */
+public class DictionaryLoader {
+   /**
+      Representation invariant:
+      fileName names the word list; every chunk parsed from it covers whole words only.
+   */
+   private static final int BUFFER_SIZE = 1 << 16;
+   private static final long MIN_CHUNK_SIZE = 1 << 20;  // smaller chunks are not worth a thread
+
+   private String fileName;
+
+   /**
+      Create a loader for the word list in the file indicated by fileName.
+      @param fileName  the name of the file to read from
+    */
+   public DictionaryLoader(String fileName){
+      this.fileName = fileName;
+   }
+
+   /**
+      Read the whole word list.
+      @param parallel  whether to parse chunks of a large file on all available cores
+      @return anagram buckets keyed by canonical (sorted) form, each holding its words in file order
+      @throws FileNotFoundException  if the file is not found or cannot be read (e.g. it is a directory)
+      @throws IllegalDictionaryException  if the dictionary has any duplicate words
+    */
+   public Map<String, ArrayList<String>> load(boolean parallel) throws FileNotFoundException, IllegalDictionaryException {
+      try(FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)){
+         long size = channel.size();
+         int numChunks = parallel ? (int) Math.min(Runtime.getRuntime().availableProcessors(), size / MIN_CHUNK_SIZE) : 1;
+
+         if(numChunks <= 1){
+            Chunk chunk = new Chunk(channel, 0, size);
+            chunk.parse();
+            return chunk.buckets;
+         }
+         return loadParallel(channel, splitPoints(channel, numChunks));
+      }
+      catch(IllegalDictionaryException e){
+         throw e;
+      }
+      catch(IOException e){//reported like FileInputStream does, as a file that cannot be opened
+         FileNotFoundException notFound = new FileNotFoundException(fileName + " (" + e.getMessage() + ")");
+         notFound.initCause(e);
+         throw notFound;
+      }
+   }
+
+   /**
+      Parse each chunk on its own thread and merge the results in file order.
+      @param channel  the open word list
+      @param bounds  chunk boundaries; chunk i covers bytes [bounds[i], bounds[i+1])
+      @return the merged anagram buckets
+      @throws IOException  if the file cannot be read
+      @throws IllegalDictionaryException  if the dictionary has any duplicate words
+    */
+   private Map<String, ArrayList<String>> loadParallel(FileChannel channel, long[] bounds) throws IOException {
+      ExecutorService pool = Executors.newFixedThreadPool(bounds.length - 1);
+      try{
+         List<Future<Chunk>> futures = new ArrayList<Future<Chunk>>();
+         for(int i = 0; i + 1 < bounds.length; i++){
+            Chunk chunk = new Chunk(channel, bounds[i], bounds[i + 1]);
+            futures.add(pool.submit(() -> { chunk.parse(); return chunk; }));
+         }
+
+         Chunk merged = futures.get(0).get();
+         for(int i = 1; i < futures.size(); i++){
+            merged.merge(futures.get(i).get());
+         }
+         return merged.buckets;
+      }
+      catch(ExecutionException e){
+         if(e.getCause() instanceof IOException){ throw (IOException) e.getCause(); }
+         throw new IllegalStateException(e.getCause());
+      }
+      catch(InterruptedException e){
+         Thread.currentThread().interrupt();
+         throw new IOException("interrupted while loading " + fileName, e);
+      }
+      finally{
+         pool.shutdownNow();
+      }
+   }
+
+   /**
+      Choose chunk boundaries that fall just after an ASCII whitespace byte, so no word is split between
+      two chunks. (ASCII bytes never occur inside a multi-byte character in UTF-8 or in single-byte charsets.)
+      @param channel  the open word list
+      @param numChunks  the number of chunks wanted
+      @return the boundaries, starting with 0 and ending with the file size; may describe fewer chunks
+      @throws IOException  if the file cannot be read
+    */
+   private static long[] splitPoints(FileChannel channel, int numChunks) throws IOException {
+      long size = channel.size();
+      long[] bounds = new long[numChunks + 1];
+      ByteBuffer buf = ByteBuffer.allocate(256);
+      int count = 1;
+
+      for(int i = 1; i < numChunks; i++){
+         long pos = Math.max(size * i / numChunks, bounds[count - 1]);
+         boolean found = false;
+
+         while(!found && pos < size){
+            buf.clear();
+            int n = channel.read(buf, pos);
+            for(int j = 0; j < n && !found; j++){
+               pos++;
+               found = isWhitespaceByte(buf.get(j));
+            }
+         }
+         if(pos < size && pos > bounds[count - 1]){ bounds[count++] = pos; }
+      }
+      bounds[count++] = size;
+      return Arrays.copyOf(bounds, count);
+   }
+
+   /**
+      Whether b is an ASCII whitespace byte (space, tab, newline, vertical tab, form feed, carriage return,
+      or the separator characters 0x1C-0x1F that Character.isWhitespace also accepts).
+      @param b  the byte to test
+      @return whether b separates words
+    */
+   private static boolean isWhitespaceByte(byte b){
+      return b == ' ' || (b >= 0x09 && b <= 0x0D) || (b >= 0x1C && b <= 0x1F);
+   }
+
+   /**
+      One byte range of the word list and the anagram buckets parsed from it.
+    */
+   private static class Chunk {
+      private FileChannel channel;
+      private long start;
+      private long end;
+      private Map<String, ArrayList<String>> buckets = new HashMap<String, ArrayList<String>>();
+
+      /**
+         Create a chunk covering bytes [start, end) of the channel.
+         @param channel  the open word list
+         @param start  position of the first byte of the chunk
+         @param end  position just past the last byte of the chunk
+       */
+      public Chunk(FileChannel channel, long start, long end){
+         this.channel = channel;
+         this.start = start;
+         this.end = end;
+      }
+
+      /**
+         Decode this chunk through a buffered positional read and add every word in it.
+         @throws IOException  if the file cannot be read
+         @throws IllegalDictionaryException  if the chunk has any duplicate words
+       */
+      public void parse() throws IOException {
+         CharsetDecoder decoder = Charset.defaultCharset().newDecoder()
+                                         .onMalformedInput(CodingErrorAction.REPLACE)
+                                         .onUnmappableCharacter(CodingErrorAction.REPLACE);
+         ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+         CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+         StringBuilder word = new StringBuilder();
+         long pos = start;
+         boolean endOfInput = false;
+
+         while(!endOfInput){
+            bytes.limit((int) Math.min(bytes.capacity(), bytes.position() + (end - pos)));
+            int n = channel.read(bytes, pos);
+            if(n > 0){ pos += n; }
+            endOfInput = pos >= end || n < 0;
+
+            bytes.flip();
+            CoderResult result;
+            do{
+               result = decoder.decode(bytes, chars, endOfInput);
+               if(endOfInput && result.isUnderflow()){ result = decoder.flush(chars); }
+               addWords(chars, word);
+            } while(result.isOverflow());
+            bytes.compact();
+         }
+         if(word.length() > 0){ add(word.toString()); }
+      }
+
+      /**
+         Drain the decoded chars, adding every word that ends in them. A word that is still unfinished
+         at the end of the buffer stays in word for the next call.
+         @param chars  decoded chars, in write mode; cleared on return
+         @param word  the unfinished word carried between calls
+         @throws IllegalDictionaryException  if a finished word was already added
+       */
+      private void addWords(CharBuffer chars, StringBuilder word) throws IllegalDictionaryException {
+         chars.flip();
+         while(chars.hasRemaining()){
+            char ch = chars.get();
+            if(!Character.isWhitespace(ch)){ word.append(ch); }
+            else if(word.length() > 0){
+               add(word.toString());
+               word.setLength(0);
+            }
+         }
+         chars.clear();
+      }
+
+      /**
+         Add a word to its bucket.
+         @param str  the word to add
+         @throws IllegalDictionaryException  if the word was already added
+       */
+      private void add(String str) throws IllegalDictionaryException {
+         char[] charArr = str.toCharArray();
+         Arrays.sort(charArr);
+         String sortedStr = new String(charArr);
+
+         ArrayList<String> arrList = buckets.get(sortedStr);
+         if(arrList == null){
+            arrList = new ArrayList<String>(2);
+            buckets.put(sortedStr, arrList);
+         }
+         else if(arrList.contains(str)){ throw new IllegalDictionaryException(str); }//a duplicate is always an anagram of itself
+         arrList.add(str);
+      }
+
+      /**
+         Append the words of a chunk that comes after this one in the file.
+         @param next  the later chunk
+         @throws IllegalDictionaryException  if a word in next was already added to this chunk
+       */
+      public void merge(Chunk next) throws IllegalDictionaryException {
+         for(Map.Entry<String, ArrayList<String>> entry : next.buckets.entrySet()){
+            ArrayList<String> arrList = buckets.get(entry.getKey());
+            if(arrList == null){ buckets.put(entry.getKey(), entry.getValue()); }
+            else{
+               for(String str : entry.getValue()){
+                  if(arrList.contains(str)){ throw new IllegalDictionaryException(str); }
+               }
+               arrList.addAll(entry.getValue());
+            }
+         }
+      }
+   }
+}
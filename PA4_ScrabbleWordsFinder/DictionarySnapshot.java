@@ -0,0 +1,293 @@
+import java.io.DataOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+   A compiled, read-only form of an anagram dictionary that is opened through a memory-mapped file.
+   The snapshot is written once from a loaded dictionary and can then be shared (through the page cache)
+   by any number of processes on the same host, without re-reading or re-sorting the word list.
+
+   File layout (all ints are big-endian, all chars are UTF-16 code units):
+      header:       MAGIC, VERSION, numKeys, numWords, numChars
+      keyStart:     numKeys + 1 ints, char offset of each canonical key (keys are in sorted order)
+      bucketStart:  numKeys + 1 ints, index of the first word of each key's anagram bucket
+      wordStart:    numWords + 1 ints, char offset of each word
+      chars:        numChars chars, the text of all keys followed by the text of all words
+      graph:        the WordGraph of all words, as written by WordGraph.writeTo
+      scores:       numGraphWords, then numGraphWords ints, the score of each word in order of its graph rank
+      feasibility:  the FeasibilitySummary of all words, as written by FeasibilitySummary.writeTo
+ */
+public class DictionarySnapshot {
+   /**
+      Representation invariant:
+      buffer holds a complete snapshot whose header has been validated against the file length.
+      keyBase, bucketBase, wordBase and charBase are the byte positions of the four sections in buffer.
+   */
+   private static final int MAGIC = 0x414E4147;  // "ANAG"
+   private static final int VERSION = 4;
+   private static final int HEADER_BYTES = 5 * Integer.BYTES;
+
+   private MappedByteBuffer buffer;
+   private int numKeys;
+   private int numWords;
+   private int keyBase;
+   private int bucketBase;
+   private int wordBase;
+   private int charBase;
+   private WordGraph wordGraph;
+   private int scoreBase;
+   private FeasibilitySummary feasibility;
+
+   /**
+      Open the snapshot stored in the file indicated by fileName.
+      @param fileName  the name of the snapshot file
+      @throws IOException  if the file cannot be read or is not a valid snapshot
+    */
+   public DictionarySnapshot(String fileName) throws IOException {
+      try(RandomAccessFile file = new RandomAccessFile(fileName, "r");
+          FileChannel channel = file.getChannel()){
+         buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());//the mapping stays valid after close
+      }
+      if(buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION){
+         throw new IOException("not a dictionary snapshot: " + fileName);
+      }
+      numKeys = buffer.getInt(8);
+      numWords = buffer.getInt(12);
+      int numChars = buffer.getInt(16);
+
+      keyBase = HEADER_BYTES;
+      bucketBase = keyBase + (numKeys + 1) * Integer.BYTES;
+      wordBase = bucketBase + (numKeys + 1) * Integer.BYTES;
+      charBase = wordBase + (numWords + 1) * Integer.BYTES;
+      long graphBase = (long) charBase + 2L * numChars;
+      if(graphBase + 2 * Integer.BYTES > buffer.capacity()){
+         throw new IOException("truncated dictionary snapshot: " + fileName);
+      }
+      wordGraph = WordGraph.readFrom(buffer, (int) graphBase);
+      long scoreEnd = graphBase + wordGraph.byteSize() + (1L + wordGraph.numWords()) * Integer.BYTES;
+      if(scoreEnd + 2 * Integer.BYTES > buffer.capacity()
+         || buffer.getInt((int) (graphBase + wordGraph.byteSize())) != wordGraph.numWords()){
+         throw new IOException("truncated dictionary snapshot: " + fileName);
+      }
+      scoreBase = (int) (graphBase + wordGraph.byteSize()) + Integer.BYTES;
+      feasibility = FeasibilitySummary.readFrom(buffer, (int) scoreEnd);
+      if(scoreEnd + feasibility.byteSize() != buffer.capacity()){
+         throw new IOException("truncated dictionary snapshot: " + fileName);
+      }
+   }
+
+   /**
+      Write a snapshot of the given anagram buckets to the file indicated by fileName, replacing any existing
+      snapshot there in one atomic rename.
+      @param fileName  the name of the file to write to
+      @param buckets  anagram buckets keyed by their canonical (sorted) form
+      @param wordGraph  the word graph of all the words in buckets
+      @param wordScores  the score of each word, indexed by its rank in wordGraph
+      @param feasibility  the feasibility summary of all the words in buckets
+      @throws IOException  if the file cannot be written
+    */
+   public static void write(String fileName, SortedMap<String, ? extends List<String>> buckets, WordGraph wordGraph,
+                            int[] wordScores, FeasibilitySummary feasibility) throws IOException {
+      int numKeys = buckets.size();
+      int numWords = 0;
+      int numChars = 0;
+      for(Map.Entry<String, ? extends List<String>> entry : buckets.entrySet()){
+         numWords += entry.getValue().size();
+         numChars += entry.getKey().length() * (entry.getValue().size() + 1);//every anagram is as long as its key
+      }
+
+      // written beside the old file and renamed over it, so processes that have the old one mapped keep
+      // reading it intact, and nobody ever opens a partly written snapshot
+      Path target = Paths.get(fileName).toAbsolutePath();
+      Path temp = target.resolveSibling(target.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+      try{
+         try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))){
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(numKeys);
+            out.writeInt(numWords);
+            out.writeInt(numChars);
+
+            int offset = 0;
+            for(String key : buckets.keySet()){//keyStart
+               out.writeInt(offset);
+               offset += key.length();
+            }
+            out.writeInt(offset);
+
+            int wordIndex = 0;
+            for(List<String> bucket : buckets.values()){//bucketStart
+               out.writeInt(wordIndex);
+               wordIndex += bucket.size();
+            }
+            out.writeInt(wordIndex);
+
+            for(List<String> bucket : buckets.values()){//wordStart, words come right after the keys
+               for(String word : bucket){
+                  out.writeInt(offset);
+                  offset += word.length();
+               }
+            }
+            out.writeInt(offset);
+
+            for(String key : buckets.keySet()){
+               out.writeChars(key);
+            }
+            for(List<String> bucket : buckets.values()){
+               for(String word : bucket){
+                  out.writeChars(word);
+               }
+            }
+            wordGraph.writeTo(out);
+            out.writeInt(wordScores.length);
+            for(int score : wordScores){
+               out.writeInt(score);
+            }
+            feasibility.writeTo(out);
+         }
+         Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      }
+      finally{
+         Files.deleteIfExists(temp);//only still there if writing failed
+      }
+   }
+
+   /**
+      Get the anagram bucket of the given canonical key, read straight from the mapped file.
+      The key is found by binary search over the mapped keys, so a miss creates no Strings; it only
+      creates the empty list it returns, which callers may modify like any other result.
+      @param sortedStr  the canonical (sorted) form to look up
+      @return a new list of the anagrams stored under sortedStr, or a new empty list if there are none
+    */
+   public ArrayList<String> getBucket(String sortedStr){
+      int key = findKey(sortedStr);
+      if(key < 0){ return new ArrayList<String>(); }
+
+      int first = intAt(bucketBase, key);
+      int last = intAt(bucketBase, key + 1);
+      ArrayList<String> words = new ArrayList<String>(last - first);
+      for(int i = first; i < last; i++){
+         words.add(textAt(intAt(wordBase, i), intAt(wordBase, i + 1)));
+      }
+      return words;
+   }
+
+   /**
+      Get the word graph stored in the snapshot.
+      @return the word graph of all words
+    */
+   public WordGraph getWordGraph(){
+      return wordGraph;
+   }
+
+   /**
+      Get the precomputed word scores stored in the snapshot, copied out of the mapped file.
+      @return the score of each word, indexed by its rank in getWordGraph()
+    */
+   public int[] getWordScores(){
+      int[] scores = new int[wordGraph.numWords()];
+      ByteBuffer in = buffer.duplicate();
+      in.position(scoreBase);
+      in.asIntBuffer().get(scores);
+      return scores;
+   }
+
+   /**
+      Get the feasibility summary stored in the snapshot, which was copied out of the mapped file when the
+      snapshot was opened (it is small: about one byte per word).
+      @return the feasibility summary of all words; shared, and never modified
+    */
+   public FeasibilitySummary getFeasibility(){
+      return feasibility;
+   }
+
+   /**
+      Get the number of canonical keys in the snapshot.
+      @return the number of anagram buckets
+    */
+   public int numKeys(){
+      return numKeys;
+   }
+
+   /**
+      Get the canonical key at the given position (keys are in sorted order).
+      @param key  index of the key, 0 <= key < numKeys()
+      @return the canonical form stored at that index
+    */
+   public String keyAt(int key){
+      return textAt(intAt(keyBase, key), intAt(keyBase, key + 1));
+   }
+
+   /**
+      Binary search the sorted key section for the given canonical form.
+      @param sortedStr  the canonical form to find
+      @return the index of the key, or -1 if it is not in the snapshot
+    */
+   private int findKey(String sortedStr){
+      int low = 0;
+      int high = numKeys - 1;
+
+      while(low <= high){
+         int mid = (low + high) >>> 1;
+         int cmp = compareKey(mid, sortedStr);
+         if(cmp < 0){ low = mid + 1; }
+         else if(cmp > 0){ high = mid - 1; }
+         else{ return mid; }
+      }
+      return -1;
+   }
+
+   /**
+      Compare the key at the given index with s, in the same order as String.compareTo.
+      @param key  index of the key in the snapshot
+      @param s  the string to compare with
+      @return negative, zero or positive as the stored key is less than, equal to or greater than s
+    */
+   private int compareKey(int key, String s){
+      int start = intAt(keyBase, key);
+      int length = intAt(keyBase, key + 1) - start;
+      int n = Math.min(length, s.length());
+
+      for(int i = 0; i < n; i++){
+         char c = buffer.getChar(charBase + 2 * (start + i));
+         if(c != s.charAt(i)){ return c - s.charAt(i); }
+      }
+      return length - s.length();
+   }
+
+   /**
+      Read the int at the given index of the int section starting at byte position base.
+      @param base  byte position of the section
+      @param index  index of the int within the section
+      @return the int stored there
+    */
+   private int intAt(int base, int index){
+      return buffer.getInt(base + index * Integer.BYTES);
+   }
+
+   /**
+      Read the chars in [start, end) of the char section into a new String.
+      @param start  char offset of the first char
+      @param end  char offset just past the last char
+      @return the text stored there
+    */
+   private String textAt(int start, int end){
+      char[] text = new char[end - start];
+      for(int i = 0; i < text.length; i++){
+         text[i] = buffer.getChar(charBase + 2 * (start + i));
+      }
+      return new String(text);
+   }
+}
@@ -0,0 +1,246 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+/**
+   Quick tests that rule out most letter multisets that are not an anagram of any word in a word list,
+   for rack searches that try many sub-racks and want to skip the lookups that can't succeed.
+   It keeps three summaries of the words:
+   - how many words there are of each length,
+   - for each length and letter 'a'-'z', the most copies of that letter in any word of that length, and
+   - a Bloom filter over the words' multiset hashes, the sum of a fixed random hash of each character,
+     which does not depend on the order of the characters, so nothing has to be sorted.
+   A multiset that fails any test has no anagrams; one that passes them all still has to be looked up,
+   but with 8 filter bits per word very few of those turn out to have none.
+ */
+public class FeasibilitySummary {
+   /**
+      Representation invariant:
+      numWords[n] is the number of words of length n, for n < numWords.length, and there are no longer
+      words. maxCount[n][i] is the most copies of 'a' + i in a word of length n, capped at Byte.MAX_VALUE.
+      For every word w, with h the sum of hashOf over the characters of w, the NUM_PROBES bits
+      probe(mix(h), k) of bloom are set; bloom.length * 64 is a power of two.
+   */
+   private static final int BITS_PER_WORD = 8;
+   private static final int NUM_PROBES = 3;
+   private static final int ALPHABET_SIZE = LetterSignature.ALPHABET_SIZE;
+   private static final long[] CHAR_HASH = new long[256];  // the hash of each character below 256
+
+   static{
+      for(int c = 0; c < CHAR_HASH.length; c++){ CHAR_HASH[c] = mix(c); }
+   }
+
+   private int[] numWords;
+   private byte[][] maxCount;
+   private long[] bloom;
+   private int bloomMask;
+
+   /**
+      Summarize a word list.
+      @param words  the words; duplicates are counted more than once in the length histogram
+    */
+   public FeasibilitySummary(Collection<String> words){
+      int maxLength = 0;
+      for(String word : words){ maxLength = Math.max(maxLength, word.length()); }
+      numWords = new int[maxLength + 1];
+      maxCount = new byte[maxLength + 1][ALPHABET_SIZE];
+
+      long bits = Math.max(64, Long.highestOneBit(Math.max(1L, (long) words.size() * BITS_PER_WORD - 1)) << 1);
+      bits = Math.min(bits, 1L << 30);
+      bloom = new long[(int) (bits >>> 6)];
+      bloomMask = (int) (bits - 1);
+
+      int[] count = new int[ALPHABET_SIZE];
+      for(String word : words){
+         int n = word.length();
+         numWords[n]++;
+         long hash = 0;
+         for(int i = 0; i < n; i++){
+            char ch = word.charAt(i);
+            hash += hashOf(ch);
+            if(ch >= 'a' && ch <= 'z'){ count[ch - 'a']++; }
+         }
+         for(int i = 0; i < ALPHABET_SIZE; i++){
+            if(count[i] > maxCount[n][i]){ maxCount[n][i] = (byte) Math.min(count[i], Byte.MAX_VALUE); }
+            count[i] = 0;
+         }
+         long mixed = mix(hash);
+         for(int k = 0; k < NUM_PROBES; k++){
+            int bit = probe(mixed, k);
+            bloom[bit >>> 6] |= 1L << bit;
+         }
+      }
+   }
+
+   /**
+      Create a summary from its arrays (see readFrom).
+      @param numWords  the number of words of each length
+      @param maxCount  the most copies of each letter in a word of each length
+      @param bloom  the Bloom filter bits; the length must be a power of two
+    */
+   private FeasibilitySummary(int[] numWords, byte[][] maxCount, long[] bloom){
+      this.numWords = numWords;
+      this.maxCount = maxCount;
+      this.bloom = bloom;
+      bloomMask = bloom.length * 64 - 1;
+   }
+
+   /**
+      Get the length of the longest word.
+      @return the longest word length, or 0 if there are no words
+    */
+   public int maxLength(){
+      return numWords.length - 1;
+   }
+
+   /**
+      Get the number of words of a length.
+      @param n  the length
+      @return the number of words that are n characters long
+    */
+   public int numWordsOfLength(int n){
+      return (n >= 0 && n < numWords.length) ? numWords[n] : 0;
+   }
+
+   /**
+      Get the most copies of a letter in any word of a length.
+      @param n  the length
+      @param letter  index of the letter, 0 for 'a' up to 25 for 'z'
+      @return the largest count of that letter in a word n characters long
+    */
+   public int maxCount(int n, int letter){
+      return (n >= 0 && n < numWords.length) ? maxCount[n][letter] : 0;
+   }
+
+   /**
+      Whether the given letters might be an anagram of some word. Nothing is created.
+      @param letters  array holding the letters, in letters[0 .. length-1]
+      @param length  the number of letters
+      @return false if the letters are certainly not an anagram of any word; true if they might be
+    */
+   public boolean mayHaveAnagrams(char[] letters, int length){
+      if(numWordsOfLength(length) == 0){ return false; }
+
+      byte[] most = maxCount[length];
+      long hash = 0;
+      for(int i = 0; i < length; i++){
+         char ch = letters[i];
+         hash += hashOf(ch);
+         if(ch >= 'a' && ch <= 'z'){
+            int copies = 0;//racks are short, so counting the copies again beats clearing a count array
+            for(int j = 0; j < length; j++){
+               if(letters[j] == ch){ copies++; }
+            }
+            if(copies > most[ch - 'a']){ return false; }
+         }
+      }
+
+      long mixed = mix(hash);
+      for(int k = 0; k < NUM_PROBES; k++){
+         int bit = probe(mixed, k);
+         if((bloom[bit >>> 6] & (1L << bit)) == 0){ return false; }
+      }
+      return true;
+   }
+
+   /**
+      Whether the letters of a string might be an anagram of some word.
+      @param s  the string to test
+      @return false if s is certainly not an anagram of any word; true if it might be
+    */
+   public boolean mayHaveAnagrams(String s){
+      return mayHaveAnagrams(s.toCharArray(), s.length());
+   }
+
+   /**
+      Write the summary, to be read back with readFrom.
+      Layout: numLengths, numBloomWords, numWords (numLengths ints), maxCount (numLengths * 26 bytes),
+      bloom (numBloomWords longs).
+      @param out  the stream to write to
+      @throws IOException  if the stream cannot be written
+    */
+   public void writeTo(DataOutputStream out) throws IOException {
+      out.writeInt(numWords.length);
+      out.writeInt(bloom.length);
+      for(int count : numWords){ out.writeInt(count); }
+      for(byte[] most : maxCount){ out.write(most); }
+      for(long bits : bloom){ out.writeLong(bits); }
+   }
+
+   /**
+      Get the number of bytes writeTo writes for this summary.
+      @return the size of the written summary in bytes
+    */
+   public long byteSize(){
+      return byteSize(numWords.length, bloom.length);
+   }
+
+   /**
+      Get the number of bytes writeTo writes for a summary of the given size.
+      @param numLengths  the longest word length plus one
+      @param numBloomWords  the number of longs in the Bloom filter
+      @return the size of the written summary in bytes
+    */
+   public static long byteSize(long numLengths, long numBloomWords){
+      return 2L * Integer.BYTES + numLengths * (Integer.BYTES + ALPHABET_SIZE) + numBloomWords * Long.BYTES;
+   }
+
+   /**
+      Read a summary written by writeTo, copying it out of the buffer.
+      @param buffer  the buffer to read from
+      @param pos  the byte position the summary starts at
+      @return the summary
+      @throws IOException  if the summary does not fit in the buffer or is malformed
+    */
+   public static FeasibilitySummary readFrom(ByteBuffer buffer, int pos) throws IOException {
+      int numLengths = buffer.getInt(pos);
+      int numBloomWords = buffer.getInt(pos + Integer.BYTES);
+      if(numLengths < 1 || numBloomWords < 1 || Integer.bitCount(numBloomWords) != 1
+         || pos + byteSize(numLengths, numBloomWords) > buffer.limit()){
+         throw new IOException("truncated feasibility summary");
+      }
+
+      ByteBuffer in = buffer.duplicate();
+      in.position(pos + 2 * Integer.BYTES);
+      int[] numWords = new int[numLengths];
+      byte[][] maxCount = new byte[numLengths][ALPHABET_SIZE];
+      long[] bloom = new long[numBloomWords];
+      in.asIntBuffer().get(numWords);
+      in.position(in.position() + numWords.length * Integer.BYTES);
+      for(byte[] most : maxCount){ in.get(most); }
+      in.asLongBuffer().get(bloom);
+      return new FeasibilitySummary(numWords, maxCount, bloom);
+   }
+
+   /**
+      Get the hash of one character.
+      @param ch  the character
+      @return its hash
+    */
+   private static long hashOf(char ch){
+      return (ch < CHAR_HASH.length) ? CHAR_HASH[ch] : mix(ch);
+   }
+
+   /**
+      Get one of the bits of the Bloom filter for a multiset hash, by double hashing.
+      @param mixed  the multiset hash, scrambled by mix
+      @param k  which probe, 0 to NUM_PROBES-1
+      @return the bit number, below bloom.length * 64
+    */
+   private int probe(long mixed, int k){
+      return ((int) mixed + k * (int) (mixed >>> 32)) & bloomMask;
+   }
+
+   /**
+      Scramble the bits of a number (the SplitMix64 finalizer), so that sums of hashes stay well spread.
+      @param x  the number
+      @return its scrambled bits
+    */
+   private static long mix(long x){
+      long z = x + 0x9E3779B97F4A7C15L;
+      z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+      z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+      return z ^ (z >>> 31);
+   }
+}
@@ -0,0 +1,142 @@
+import java.util.Collection;
+
+/**
+   Packs the letter counts of a string of lower case letters 'a'-'z' into one long, so that two strings
+   have the same signature iff they are anagrams of each other.
+   Each letter gets its own bit field. The field widths are chosen from a word list so that almost every
+   word fits in 63 bits; the few strings that don't fit (or that have any other character) have no
+   signature and must be handled some other way.
+   E.g. with 2-bit fields, "abca" has count 2 in the 'a' field, 1 in the 'b' field and 1 in the 'c' field.
+ */
+public class LetterSignature {
+   /**
+      Representation invariant:
+      shift[i] and max[i] describe the bit field of letter 'a' + i: its count is (sig >>> shift[i]) & max[i].
+      The fields don't overlap, and all of them fit in the low 63 bits, so a signature is never negative.
+   */
+   public static final int ALPHABET_SIZE = 26;
+   public static final long NONE = -1L;  // returned for strings that have no signature
+
+   private static final int TOTAL_BITS = 63;
+   private static final int MIN_WIDTH = 2;
+
+   private int[] shift = new int[ALPHABET_SIZE];
+   private long[] max = new long[ALPHABET_SIZE];
+
+   /**
+      Create a layout with the given field width for each letter.
+      @param width  width[i] is the number of bits for letter 'a' + i
+      PRE: width.length == ALPHABET_SIZE, every width is at least 1, and the widths add up to at most 63
+    */
+   public LetterSignature(int[] width){
+      int bit = 0;
+      for(int i = 0; i < ALPHABET_SIZE; i++){
+         shift[i] = bit;
+         max[i] = (1L << width[i]) - 1;
+         bit += width[i];
+      }
+   }
+
+   /**
+      Choose field widths for the given words: every letter gets 2 bits, and each spare bit goes to the
+      letter whose field is currently too narrow for the most words.
+      @param words  the words the layout should fit
+      @return a layout that fits as many of the words as the 63 bits allow
+    */
+   public static LetterSignature forWords(Collection<String> words){
+      int maxCount = 0;
+      for(String word : words){ maxCount = Math.max(maxCount, word.length()); }
+
+      // needCount[i][n]: number of words with exactly n copies of letter i
+      int[][] needCount = new int[ALPHABET_SIZE][maxCount + 1];
+      int[] counts = new int[ALPHABET_SIZE];
+      for(String word : words){
+         for(int i = 0; i < word.length(); i++){
+            int letter = word.charAt(i) - 'a';
+            if(letter >= 0 && letter < ALPHABET_SIZE){ counts[letter]++; }
+         }
+         for(int i = 0; i < ALPHABET_SIZE; i++){
+            needCount[i][counts[i]]++;
+            counts[i] = 0;
+         }
+      }
+
+      int[] width = new int[ALPHABET_SIZE];
+      int spare = TOTAL_BITS - MIN_WIDTH * ALPHABET_SIZE;
+      for(int i = 0; i < ALPHABET_SIZE; i++){ width[i] = MIN_WIDTH; }
+
+      while(spare > 0){
+         int best = -1;
+         int bestMisfits = 0;
+         for(int i = 0; i < ALPHABET_SIZE; i++){
+            int misfits = 0;//words with more copies of letter i than its field can count
+            for(int n = (1 << width[i]); n <= maxCount; n++){ misfits += needCount[i][n]; }
+            if(misfits > bestMisfits){
+               best = i;
+               bestMisfits = misfits;
+            }
+         }
+         if(best < 0){ break; }//everything fits already
+         width[best]++;
+         spare--;
+      }
+      return new LetterSignature(width);
+   }
+
+   /**
+      Compute the signature of s without allocating anything.
+      @param s  the string to process
+      @return the signature of s, or NONE if s has a character other than 'a'-'z' or has more copies of
+              some letter than that letter's field can count
+    */
+   public long of(CharSequence s){
+      long sig = 0;
+      for(int i = 0; i < s.length(); i++){
+         sig = add(sig, s.charAt(i));
+         if(sig == NONE){ return NONE; }
+      }
+      return sig;
+   }
+
+   /**
+      Add one copy of a letter to a signature.
+      @param sig  a signature (not NONE)
+      @param c  the letter to add
+      @return the new signature, or NONE if c is not 'a'-'z' or its field is already full
+    */
+   public long add(long sig, char c){
+      int letter = c - 'a';
+      if(letter < 0 || letter >= ALPHABET_SIZE || ((sig >>> shift[letter]) & max[letter]) == max[letter]){
+         return NONE;
+      }
+      return sig + (1L << shift[letter]);
+   }
+
+   /**
+      Get the number of copies of a letter in a signature.
+      @param sig  a signature (not NONE)
+      @param letter  index of the letter, 0 for 'a' up to 25 for 'z'
+      @return the count of that letter
+    */
+   public int count(long sig, int letter){
+      return (int) ((sig >>> shift[letter]) & max[letter]);
+   }
+
+   /**
+      Get the largest count a letter's field can hold.
+      @param letter  index of the letter, 0 for 'a' up to 25 for 'z'
+      @return the capacity of that letter's field
+    */
+   public int capacity(int letter){
+      return (int) max[letter];
+   }
+
+   /**
+      Get the value one copy of a letter adds to a signature, so callers can build signatures incrementally.
+      @param letter  index of the letter, 0 for 'a' up to 25 for 'z'
+      @return the unit of that letter's field
+    */
+   public long unit(int letter){
+      return 1L << shift[letter];
+   }
+}
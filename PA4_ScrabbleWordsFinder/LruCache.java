@@ -0,0 +1,97 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+   A size-bounded cache that evicts the least recently used entry when it is full.
+   All methods are synchronized, so one cache can be shared by any number of threads.
+   It counts hits and misses so its capacity can be tuned to the workload.
+ */
+public class LruCache<K, V> {
+   /**
+      Representation invariant:
+      entries is in access order (least recently used first) and never holds more than capacity entries.
+      hits + misses is the number of calls to get so far.
+   */
+   private LinkedHashMap<K, V> entries;
+   private int capacity;
+   private long hits;
+   private long misses;
+
+   /**
+      Create an empty cache.
+      @param capacity  the largest number of entries to keep; 0 disables caching
+    */
+   public LruCache(int capacity){
+      this.capacity = capacity;
+      entries = new LinkedHashMap<K, V>(16, 0.75f, true){
+         @Override
+         protected boolean removeEldestEntry(Map.Entry<K, V> eldest){
+            return size() > LruCache.this.capacity;
+         }
+      };
+   }
+
+   /**
+      Get the value cached for a key, marking it as most recently used.
+      @param key  the key to look up
+      @return the cached value, or null if there is none
+    */
+   public synchronized V get(K key){
+      V value = entries.get(key);
+      if(value != null){ hits++; }
+      else{ misses++; }
+      return value;
+   }
+
+   /**
+      Cache a value for a key, evicting the least recently used entry if the cache is full.
+      @param key  the key
+      @param value  the value, not null
+    */
+   public synchronized void put(K key, V value){
+      if(capacity > 0){ entries.put(key, value); }
+   }
+
+   /**
+      Get the number of calls to get that found a value.
+      @return the number of hits
+    */
+   public synchronized long hits(){
+      return hits;
+   }
+
+   /**
+      Get the number of calls to get that found nothing.
+      @return the number of misses
+    */
+   public synchronized long misses(){
+      return misses;
+   }
+
+   /**
+      Get the number of entries currently cached.
+      @return the number of entries
+    */
+   public synchronized int size(){
+      return entries.size();
+   }
+
+   /**
+      Get the largest number of entries the cache keeps.
+      @return the capacity
+    */
+   public int capacity(){
+      return capacity;
+   }
+
+   /**
+      Describe the cache's counters, e.g. "1500 hits, 500 misses (75.0% hit rate), 500/4096 entries".
+      @return the counters as text
+    */
+   @Override
+   public synchronized String toString(){
+      long lookups = hits + misses;
+      double rate = (lookups == 0) ? 0 : 100.0 * hits / lookups;
+      return String.format("%d hits, %d misses (%.1f%% hit rate), %d/%d entries", hits, misses, rate, entries.size(), capacity);
+   }
+}
@@ -0,0 +1,97 @@
+/**
+   A legal play on a Board: the whole word it makes along its row or column, where the word starts,
+   and its score.
+ */
+public class Move {
+   /**
+      Representation invariant:
+      word is the whole main word, including tiles that were already on the board; a letter played
+      by a blank is in upper case, every other letter is in lower case.
+      (row, col) is the square of the first letter; numTiles is the number of tiles taken from the rack.
+   */
+   private int row;
+   private int col;
+   private boolean across;
+   private String word;
+   private int numTiles;
+   private int score;
+
+   /**
+      Create a move.
+      @param row the row of the first letter of the word
+      @param col the column of the first letter of the word
+      @param across whether the word reads along a row (otherwise down a column)
+      @param word the whole word, with letters played by blanks in upper case
+      @param numTiles the number of tiles played from the rack
+      @param score the score of the move
+   */
+   public Move(int row, int col, boolean across, String word, int numTiles, int score){
+      this.row = row;
+      this.col = col;
+      this.across = across;
+      this.word = word;
+      this.numTiles = numTiles;
+      this.score = score;
+   }
+
+   /**
+      Get the row of the first letter of the word.
+      @return the row
+   */
+   public int getRow(){
+      return row;
+   }
+
+   /**
+      Get the column of the first letter of the word.
+      @return the column
+   */
+   public int getCol(){
+      return col;
+   }
+
+   /**
+      Whether the word reads along a row.
+      @return true for an across move, false for a down move
+   */
+   public boolean isAcross(){
+      return across;
+   }
+
+   /**
+      Get the whole word the move makes.
+      @return the word, with letters played by blanks in upper case
+   */
+   public String getWord(){
+      return word;
+   }
+
+   /**
+      Get the number of tiles the move takes from the rack.
+      @return the number of tiles played
+   */
+   public int getNumTiles(){
+      return numTiles;
+   }
+
+   /**
+      Get the score of the move, including cross words and the bonus for playing seven tiles.
+      @return the score
+   */
+   public int getScore(){
+      return score;
+   }
+
+   /**
+      Get the move in the usual notation: score, word, and the first square, written row number then
+      column letter for an across move and column letter then row number for a down move.
+      E.g. "24: quiz 8H" or "24: quiz H8".
+      @return the move as text
+   */
+   @Override
+   public String toString(){
+      String rowName = Integer.toString(row + 1);
+      String colName = Character.toString((char) ('A' + col));
+      return score + ": " + word + " " + (across ? rowName + colName : colName + rowName);
+   }
+}
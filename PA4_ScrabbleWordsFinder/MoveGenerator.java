@@ -0,0 +1,388 @@
+import java.util.ArrayList;
+
+/**
+   Finds every legal play of a rack on a Board, scored like a real Scrabble move, by walking the
+   dictionary's word graph (the Appel-Jacobson algorithm).
+   Moves are only started from anchor squares (empty squares next to a tile, or the centre of an empty
+   board). For each anchor, every possible left part is built from the rack into the empty squares before
+   it, and then extended to the right through the anchor, following only the graph edges that the rack, the
+   tiles already on the board and the cross-checks allow. A cross-check is the set of letters that make a
+   word with the tiles above and below a square, so a move is never checked against the dictionary after
+   it is found. Down moves are found the same way on the transposed board.
+   The dictionary words are expected to be lower case; rack letters are read case-insensitively and blanks
+   are '_' or '?' (see Rack.isBlank).
+ */
+public class MoveGenerator {
+   /**
+      Representation invariant:
+      Exactly one of dic and graph is non-null. The words are those of dic's current word graph, if dic
+      is non-null, and of graph otherwise. A generator keeps no other state, so one instance can be used
+      by any number of threads.
+   */
+   private static final int BINGO_TILES = 7;
+   private static final int BINGO_BONUS = 50;
+   private static final int EXPECTED_MOVES = 1024;  // a typical mid-game rack has several hundred
+   private static final int ALL_LETTERS = (1 << LetterSignature.ALPHABET_SIZE) - 1;
+
+   private AnagramDictionary dic;
+   private WordGraph graph;
+
+   /**
+      Create a move generator for the words of a dictionary. Every search uses the dictionary's
+      words as they are when it starts, so updates to the dictionary are seen by later searches.
+      @param dic the dictionary of legal words
+   */
+   public MoveGenerator(AnagramDictionary dic){
+      this.dic = dic;
+   }
+
+   /**
+      Create a move generator for the words of a word graph.
+      @param graph the graph of legal words
+   */
+   public MoveGenerator(WordGraph graph){
+      this.graph = graph;
+   }
+
+   /**
+      Get every legal move of some or all of the tiles of rack on board.
+      A move that places a single tile is reported once, across if it makes an across word of at least two
+      letters and down otherwise. On an empty board, moves must cover the centre square.
+      @param board the position
+      @param rack the tiles available
+      @return a new list of all the legal moves, in no particular order
+   */
+   public ArrayList<Move> generate(Board board, String rack){
+      ArrayList<Move> moves = new ArrayList<Move>(EXPECTED_MOVES);
+      WordGraph words = (dic != null) ? dic.getWordGraph() : graph;
+      new Search(words, board, rack, true, moves).run();
+      new Search(words, board.transposed(), rack, false, moves).run();
+      return moves;
+   }
+
+   /**
+      Get the best-scoring legal move of rack on board.
+      @param board the position
+      @param rack the tiles available
+      @return the move with the highest score, or null if there is no legal move
+   */
+   public Move bestMove(Board board, String rack){
+      Move best = null;
+      for(Move move : generate(board, rack)){
+         if(best == null || move.getScore() > best.getScore()){ best = move; }
+      }
+      return best;
+   }
+
+   /**
+      The state of one search along the rows of a board: the rack, the cross-checks and anchors of
+      every square, and the word being built.
+   */
+   private static class Search {
+      private WordGraph graph;
+      private Board board;
+      private boolean across;  // false if board is the transposed position, so rows are really columns
+      private ArrayList<Move> moves;
+
+      private int[] count = new int[LetterSignature.ALPHABET_SIZE];  // unused rack tiles of each letter
+      private int available;  // bit i set iff count[i] > 0
+      private int numBlanks;
+      private int numTiles;
+
+      private int[][] crossMask = new int[Board.SIZE][Board.SIZE];     // letters allowed by the column
+      private int[][] crossSum = new int[Board.SIZE][Board.SIZE];      // value of the column's tiles
+      private boolean[][] hasCross = new boolean[Board.SIZE][Board.SIZE];
+      private boolean[][] anchor = new boolean[Board.SIZE][Board.SIZE];
+
+      private char[] word = new char[Board.SIZE];          // word[i] is the letter on square start + i
+      private boolean[] wordBlank = new boolean[Board.SIZE];
+      private int row;
+      private int anchorCol;
+
+      /**
+         Prepare a search.
+         @param graph the graph of legal words
+         @param board the position to search along the rows of
+         @param rack the tiles available
+         @param across whether board is the real position (otherwise it is transposed)
+         @param moves receives the moves found
+      */
+      public Search(WordGraph graph, Board board, String rack, boolean across, ArrayList<Move> moves){
+         this.graph = graph;
+         this.board = board;
+         this.across = across;
+         this.moves = moves;
+
+         for(int i = 0; i < rack.length(); i++){
+            char ch = Character.toLowerCase(rack.charAt(i));
+            if(Rack.isBlank(ch)){ numBlanks++; }
+            else if(ch >= 'a' && ch <= 'z'){
+               count[ch - 'a']++;
+               available |= 1 << (ch - 'a');
+            }
+            else{ continue; }
+            numTiles++;
+         }
+      }
+
+      /**
+         Find the cross-checks and anchors, then every move from every anchor.
+      */
+      public void run(){
+         if(numTiles == 0){ return; }
+         computeCrossChecks();
+
+         for(row = 0; row < Board.SIZE; row++){
+            for(int c = 0; c < Board.SIZE; c++){
+               if(!anchor[row][c] || playable(crossMask[row][c]) == 0){ continue; }
+               anchorCol = c;
+
+               if(c > 0 && board.hasTile(row, c - 1)){//the left part is the tiles already there
+                  int start = c;
+                  int node = 0;
+                  while(start > 0 && board.hasTile(row, start - 1)){ start--; }
+                  for(int i = start; i < c && node >= 0; i++){
+                     word[i - start] = board.letterAt(row, i);
+                     wordBlank[i - start] = board.isBlankAt(row, i);
+                     node = graph.child(node, board.letterAt(row, i));
+                  }
+                  if(node >= 0){ extendRight(node, start, c, 0); }
+               }
+               else{
+                  int limit = 0;//empty squares before the anchor that no other anchor's moves reach
+                  while(limit < c && limit < numTiles - 1 && !anchor[row][c - limit - 1]){ limit++; }
+                  leftPart(0, 0, limit);
+               }
+            }
+         }
+      }
+
+      /**
+         Try every left part that can be built from the rack, up to limit tiles, in the empty squares just
+         before the anchor, and extend each one to the right. A left part of length n starts at column
+         anchorCol - n; those squares have no tiles next to them, so they need no cross-checks.
+         @param node the node the left part so far leads to
+         @param length the length of the left part so far
+         @param limit the most tiles the left part may have
+      */
+      private void leftPart(int node, int length, int limit){
+         extendRight(node, anchorCol - length, anchorCol, length);
+         if(length == limit){ return; }
+
+         for(int e = graph.firstEdgeOf(node); e < graph.endEdgeOf(node); e++){
+            char label = graph.labelOf(e);
+            int letter = label - 'a';
+            if(letter < 0 || letter >= LetterSignature.ALPHABET_SIZE){ continue; }
+
+            word[length] = label;
+            if(count[letter] > 0){
+               take(letter);
+               wordBlank[length] = false;
+               leftPart(graph.targetOf(e), length + 1, limit);
+               putBack(letter);
+            }
+            if(numBlanks > 0){
+               numBlanks--;
+               wordBlank[length] = true;
+               leftPart(graph.targetOf(e), length + 1, limit);
+               numBlanks++;
+            }
+         }
+      }
+
+      /**
+         Extend the word from column col to the right, through the tiles already on the board and
+         through empty squares filled from the rack, reporting every complete word that covers the anchor.
+         @param node the node the word so far leads to
+         @param start the column of the first letter of the word
+         @param col the column to fill next
+         @param placed the number of rack tiles in the word so far
+      */
+      private void extendRight(int node, int start, int col, int placed){
+         if(col < Board.SIZE && board.hasTile(row, col)){
+            char label = board.letterAt(row, col);
+            int next = graph.child(node, label);
+            if(next >= 0){
+               word[col - start] = label;
+               wordBlank[col - start] = board.isBlankAt(row, col);
+               extendRight(next, start, col + 1, placed);
+            }
+            return;
+         }
+
+         if(col > anchorCol && graph.isTerminal(node)){ record(start, col - start, placed); }
+         if(col == Board.SIZE || placed == numTiles){ return; }
+
+         int playable = playable(crossMask[row][col]);
+         if(playable == 0){ return; }
+         for(int e = graph.firstEdgeOf(node); e < graph.endEdgeOf(node); e++){
+            int letter = graph.labelOf(e) - 'a';
+            if(letter >= 0 && letter < LetterSignature.ALPHABET_SIZE && (playable & (1 << letter)) != 0){
+               place(letter, graph.targetOf(e), start, col, placed);
+            }
+         }
+      }
+
+      /**
+         Put a letter on the empty square col, from a real tile and then from a blank if either is left,
+         and extend the word past it.
+         @param letter index of the letter, 0 for 'a'
+         @param next the node the word leads to with the letter
+         @param start the column of the first letter of the word
+         @param col the column of the square
+         @param placed the number of rack tiles in the word before this one
+      */
+      private void place(int letter, int next, int start, int col, int placed){
+         word[col - start] = (char) ('a' + letter);
+         if(count[letter] > 0){
+            take(letter);
+            wordBlank[col - start] = false;
+            extendRight(next, start, col + 1, placed + 1);
+            putBack(letter);
+         }
+         if(numBlanks > 0){
+            numBlanks--;
+            wordBlank[col - start] = true;
+            extendRight(next, start, col + 1, placed + 1);
+            numBlanks++;
+         }
+      }
+
+      /**
+         Score the word in word[0 .. length-1], starting at column start of the current row, and add it
+         to the moves. Premiums count only for the squares this move fills; each filled square with tiles
+         above or below it also scores the cross word it makes.
+         @param start the column of the first letter
+         @param length the length of the word
+         @param placed the number of rack tiles in the word
+      */
+      private void record(int start, int length, int placed){
+         if(length < 2){ return; }//a lone tile is only a move if it makes a word the other way
+
+         int mainScore = 0;
+         int wordFactor = 1;
+         int crossScore = 0;
+         int lastPlaced = -1;
+
+         for(int i = 0; i < length; i++){
+            int c = start + i;
+            int value = wordBlank[i] ? 0 : ScoreTable.getLetterScore(word[i]);
+            if(board.hasTile(row, c)){
+               mainScore += value;
+               continue;
+            }
+            int letterValue = value * board.letterMultiplier(row, c);
+            mainScore += letterValue;
+            wordFactor *= board.wordMultiplier(row, c);
+            if(hasCross[row][c]){ crossScore += (crossSum[row][c] + letterValue) * board.wordMultiplier(row, c); }
+            lastPlaced = c;
+         }
+         if(!across && placed == 1 && hasCross[row][lastPlaced]){
+            return;//the same tile makes an across word of two or more letters, which was already reported
+         }
+
+         int score = mainScore * wordFactor + crossScore + (placed == BINGO_TILES ? BINGO_BONUS : 0);
+         char[] letters = new char[length];
+         for(int i = 0; i < length; i++){ letters[i] = wordBlank[i] ? Character.toUpperCase(word[i]) : word[i]; }
+
+         moves.add(across ? new Move(row, start, true, new String(letters), placed, score)
+                          : new Move(start, row, false, new String(letters), placed, score));
+      }
+
+      /**
+         Find, for every empty square, the letters that make a word with the tiles above and below it,
+         the value of those tiles, and whether the square is an anchor.
+      */
+      private void computeCrossChecks(){
+         for(int r = 0; r < Board.SIZE; r++){
+            for(int c = 0; c < Board.SIZE; c++){
+               if(board.hasTile(r, c)){ continue; }
+               anchor[r][c] = hasTileAt(r - 1, c) || hasTileAt(r + 1, c) || hasTileAt(r, c - 1) || hasTileAt(r, c + 1);
+               crossMask[r][c] = ALL_LETTERS;
+               if(!hasTileAt(r - 1, c) && !hasTileAt(r + 1, c)){ continue; }
+
+               hasCross[r][c] = true;
+               int top = r;
+               while(hasTileAt(top - 1, c)){ top--; }
+               int node = 0;
+               for(int i = top; i < r; i++){
+                  crossSum[r][c] += tileValue(i, c);
+                  if(node >= 0){ node = graph.child(node, board.letterAt(i, c)); }
+               }
+               for(int i = r + 1; hasTileAt(i, c); i++){ crossSum[r][c] += tileValue(i, c); }
+
+               crossMask[r][c] = (node < 0) ? 0 : crossLetters(node, r, c);
+            }
+         }
+         if(board.numTiles() == 0){ anchor[Board.CENTER][Board.CENTER] = true; }
+      }
+
+      /**
+         Get the letters that, put on an empty square after the path to node, continue through the tiles
+         below the square to the end of a word.
+         @param node the node the tiles above the square lead to
+         @param r the row of the square
+         @param c the column of the square
+         @return the allowed letters, bit i for 'a' + i
+      */
+      private int crossLetters(int node, int r, int c){
+         int mask = 0;
+         for(int e = graph.firstEdgeOf(node); e < graph.endEdgeOf(node); e++){
+            int letter = graph.labelOf(e) - 'a';
+            if(letter < 0 || letter >= LetterSignature.ALPHABET_SIZE){ continue; }
+
+            int below = graph.targetOf(e);
+            for(int i = r + 1; below >= 0 && hasTileAt(i, c); i++){ below = graph.child(below, board.letterAt(i, c)); }
+            if(below >= 0 && graph.isTerminal(below)){ mask |= 1 << letter; }
+         }
+         return mask;
+      }
+
+      /**
+         Get the letters that some unused tile can be played as on a square with the given cross-check.
+         @param allowed the letters allowed on the square, bit i for 'a' + i
+         @return all the allowed letters if a blank is left, otherwise the allowed letters left in the rack
+      */
+      private int playable(int allowed){
+         return (numBlanks > 0) ? allowed : allowed & available;
+      }
+
+      /**
+         Take one tile of a letter from the rack.
+         @param letter index of the letter, 0 for 'a'
+         PRE: count[letter] > 0
+      */
+      private void take(int letter){
+         if(--count[letter] == 0){ available &= ~(1 << letter); }
+      }
+
+      /**
+         Put back one tile of a letter taken with take.
+         @param letter index of the letter, 0 for 'a'
+      */
+      private void putBack(int letter){
+         count[letter]++;
+         available |= 1 << letter;
+      }
+
+      /**
+         Whether a square is on the board and has a tile.
+         @param r the row of the square
+         @param c the column of the square
+         @return whether (r, c) has a tile
+      */
+      private boolean hasTileAt(int r, int c){
+         return Board.inRange(r, c) && board.hasTile(r, c);
+      }
+
+      /**
+         Get the score of the tile on a square, without premiums.
+         @param r the row of the square
+         @param c the column of the square
+         @return the value of the tile, 0 for a blank
+      */
+      private int tileValue(int r, int c){
+         return board.isBlankAt(r, c) ? 0 : ScoreTable.getLetterScore(board.letterAt(r, c));
+      }
+   }
+}
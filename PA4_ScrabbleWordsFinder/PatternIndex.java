@@ -0,0 +1,246 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+   Answers crossword-style pattern queries over a word list, such as "c?t*": '?' stands for any one letter,
+   '*' for any run of letters (possibly none), and every other character for itself.
+   The words are grouped by length, and for every length, position and letter 'a'-'z' there is a bitmap
+   of the words that have that letter at that position, plus one of the words that have it anywhere.
+   The letters before the first '*' and after the last '*' are at known positions for each length, and
+   the letters between two stars must at least occur somewhere, so the candidate words of a length are
+   found by intersecting bitmaps 64 words at a time. Only patterns with two or more stars (or a rack) need
+   the candidates to be checked against the pattern one by one.
+   A query can also take a rack: the letters that the pattern's wildcards stand for must then come from the
+   rack's tiles (a blank tile, see Rack.isBlank, can stand for any letter), as when the fixed letters are
+   already on a board.
+ */
+public class PatternIndex {
+   /**
+      Representation invariant:
+      words[n] holds the words of length n in alphabetical order. For every letter i ('a' + i) and position
+      p < n, bit w of bits[n][p * ALPHABET_SIZE + i] is set iff words[n][w] has that letter at p, and bit w
+      of anywhere[n][i] is set iff words[n][w] has that letter at any position. Bit w is word w / 64,
+      bit w % 64 of the long array.
+   */
+   public static final char ANY_LETTER = '?';
+   public static final char ANY_LETTERS = '*';
+
+   private static final int ALPHABET_SIZE = LetterSignature.ALPHABET_SIZE;
+
+   private String[][] words;
+   private long[][][] bits;
+   private long[][][] anywhere;
+
+   /**
+      Index the given words.
+      @param wordList  the words; must not contain duplicates
+    */
+   public PatternIndex(Collection<String> wordList){
+      String[] sorted = wordList.toArray(new String[0]);
+      Arrays.sort(sorted);
+      int maxLength = 0;
+      for(String word : sorted){ maxLength = Math.max(maxLength, word.length()); }
+
+      int[] numWords = new int[maxLength + 1];
+      for(String word : sorted){ numWords[word.length()]++; }
+      words = new String[maxLength + 1][];
+      bits = new long[maxLength + 1][][];
+      anywhere = new long[maxLength + 1][][];
+      for(int n = 0; n <= maxLength; n++){
+         words[n] = new String[numWords[n]];
+         bits[n] = new long[n * ALPHABET_SIZE][(numWords[n] + 63) >>> 6];
+         anywhere[n] = new long[ALPHABET_SIZE][(numWords[n] + 63) >>> 6];
+         numWords[n] = 0;
+      }
+
+      for(String word : sorted){
+         int n = word.length();
+         int w = numWords[n]++;
+         words[n][w] = word;
+         for(int p = 0; p < n; p++){
+            int letter = word.charAt(p) - 'a';
+            if(letter >= 0 && letter < ALPHABET_SIZE){
+               bits[n][p * ALPHABET_SIZE + letter][w >>> 6] |= 1L << w;
+               anywhere[n][letter][w >>> 6] |= 1L << w;
+            }
+         }
+      }
+   }
+
+   /**
+      Get every word that matches a pattern, in order of length and then alphabetically.
+      @param pattern  the pattern
+      @return a new list of the matching words
+    */
+   public ArrayList<String> match(String pattern){
+      return match(pattern, 0, Integer.MAX_VALUE, null);
+   }
+
+   /**
+      Get every word that matches a pattern and has a length in the given range, in order of length and
+      then alphabetically. If rack is not null, only words whose wildcard letters can all be taken from
+      rack are returned.
+      E.g. with rack "ao", "c?t*" matches "cat" and "cot" but not "cats", which would need an s.
+      @param pattern  the pattern
+      @param minLength  the shortest length wanted
+      @param maxLength  the longest length wanted
+      @param rack  the tiles the wildcards must be filled from, or null to allow any letters
+      @return a new list of the matching words
+    */
+   public ArrayList<String> match(String pattern, int minLength, int maxLength, String rack){
+      ArrayList<String> result = new ArrayList<String>();
+      int firstStar = pattern.indexOf(ANY_LETTERS);
+      int lastStar = pattern.lastIndexOf(ANY_LETTERS);
+      int fixedLength = pattern.length();
+      for(int i = 0; i < pattern.length(); i++){
+         if(pattern.charAt(i) == ANY_LETTERS){ fixedLength--; }
+      }
+
+      int[] count = null;
+      int numBlanks = 0;
+      if(rack != null){
+         count = new int[ALPHABET_SIZE];
+         for(int i = 0; i < rack.length(); i++){
+            int letter = rack.charAt(i) - 'a';
+            if(Rack.isBlank(rack.charAt(i))){ numBlanks++; }
+            else if(letter >= 0 && letter < ALPHABET_SIZE){ count[letter]++; }
+         }
+      }
+      int rackLetters = (rack == null || numBlanks > 0) ? -1 : lettersOf(count);
+      // with a rack and no blanks, a word can only have letters from the rack or the pattern
+      int forbidden = 0;
+      if(rackLetters >= 0){
+         forbidden = ~rackLetters & ((1 << ALPHABET_SIZE) - 1);
+         for(int i = 0; i < pattern.length(); i++){
+            int letter = pattern.charAt(i) - 'a';
+            if(letter >= 0 && letter < ALPHABET_SIZE){ forbidden &= ~(1 << letter); }
+         }
+      }
+
+      int low = Math.max(minLength, fixedLength);
+      int high = Math.min(maxLength, firstStar < 0 ? fixedLength : words.length - 1);
+      // the bitmaps alone decide if there is no rack, at most one star, and every letter is 'a'-'z'
+      boolean exact = rack == null && firstStar == lastStar;
+      int numPrefix = (firstStar < 0) ? pattern.length() : firstStar;
+      int numSuffix = (firstStar < 0) ? 0 : pattern.length() - lastStar - 1;
+      long[][] masks = new long[pattern.length()][];
+
+      for(int n = low; n <= high && n < words.length; n++){
+         int numMasks = 0;
+         boolean none = false;
+
+         for(int i = 0; i < pattern.length() && !none; i++){
+            char ch = pattern.charAt(i);
+            int letter = ch - 'a';
+            boolean known = i < numPrefix || i > lastStar;//at a fixed distance from the start or the end
+            int pos = (i < numPrefix) ? i : n - (pattern.length() - i);
+
+            if(ch == ANY_LETTERS){ continue; }
+            if(ch == ANY_LETTER){
+               if(known && rackLetters >= 0){ masks[numMasks++] = union(n, pos, rackLetters); }
+            }
+            else if(letter < 0 || letter >= ALPHABET_SIZE){ exact = false; }
+            else if(known){ masks[numMasks++] = bits[n][pos * ALPHABET_SIZE + letter]; }
+            else{ masks[numMasks++] = anywhere[n][letter]; }
+            none = numMasks > 0 && masks[numMasks - 1] == null;
+         }
+         if(none){ continue; }
+
+         String[] group = words[n];
+         for(int chunk = 0; chunk < (group.length + 63) >>> 6; chunk++){
+            long w = (chunk == (group.length - 1) >>> 6 && (group.length & 63) != 0) ? (1L << (group.length & 63)) - 1 : -1L;
+            for(int m = 0; m < numMasks && w != 0; m++){ w &= masks[m][chunk]; }
+            for(int f = forbidden; f != 0 && w != 0; f &= f - 1){ w &= ~anywhere[n][Integer.numberOfTrailingZeros(f)][chunk]; }
+
+            for(; w != 0; w &= w - 1){
+               String word = group[(chunk << 6) + Long.numberOfTrailingZeros(w)];
+               if(exact || matches(pattern, 0, word, 0, count, numBlanks)){ result.add(word); }
+            }
+         }
+      }
+      return result;
+   }
+
+   /**
+      Get the words of a length that have any of the given letters at a position.
+      @param n  the length
+      @param pos  the position
+      @param letters  the letters, bit i for 'a' + i
+      @return a new bitmap over the words of length n, or null if there are no such words
+    */
+   private long[] union(int n, int pos, int letters){
+      long[] mask = null;
+      for(int i = 0; i < ALPHABET_SIZE; i++){
+         if((letters & (1 << i)) == 0){ continue; }
+         long[] b = bits[n][pos * ALPHABET_SIZE + i];
+         if(mask == null){ mask = b.clone(); }
+         else{
+            for(int j = 0; j < mask.length; j++){ mask[j] |= b[j]; }
+         }
+      }
+      return mask;
+   }
+
+   /**
+      Get the letters that a rack has at least one tile of.
+      @param count  the number of tiles of each letter, 'a' to 'z'
+      @return the letters, bit i for 'a' + i
+    */
+   private static int lettersOf(int[] count){
+      int letters = 0;
+      for(int i = 0; i < ALPHABET_SIZE; i++){
+         if(count[i] > 0){ letters |= 1 << i; }
+      }
+      return letters;
+   }
+
+   /**
+      Whether word[w ..] matches pattern[p ..], with the letters that wildcards stand for taken from the
+      rack if count is not null. Every way of matching a '*' is tried until one works.
+      @param pattern  the pattern
+      @param p  the position in pattern
+      @param word  the word
+      @param w  the position in word
+      @param count  the unused rack tiles of each letter 'a'-'z', or null for no rack
+      @param numBlanks  the unused blanks of the rack
+      @return whether the rest of the word matches the rest of the pattern
+    */
+   private static boolean matches(String pattern, int p, String word, int w, int[] count, int numBlanks){
+      if(p == pattern.length()){ return w == word.length(); }
+
+      char pc = pattern.charAt(p);
+      if(pc == ANY_LETTERS){//the star stands for nothing more, or for word[w] and maybe more
+         return matches(pattern, p + 1, word, w, count, numBlanks)
+                || (w < word.length() && takeAndMatch(pattern, p, word, w, count, numBlanks));
+      }
+      if(w == word.length()){ return false; }
+      if(pc == ANY_LETTER){ return takeAndMatch(pattern, p + 1, word, w, count, numBlanks); }
+      return pc == word.charAt(w) && matches(pattern, p + 1, word, w + 1, count, numBlanks);
+   }
+
+   /**
+      Let a wildcard stand for word[w], taking a tile for it from the rack if there is one, and match
+      the rest of the word against pattern[next ..].
+      A real tile is used whenever one is left: a blank could stand for that letter too, so keeping the
+      blank never loses a match.
+      @param pattern  the pattern
+      @param next  the position in pattern to continue from
+      @param word  the word
+      @param w  the position of the letter in word
+      @param count  the unused rack tiles of each letter 'a'-'z', or null for no rack
+      @param numBlanks  the unused blanks of the rack
+      @return whether the rest of the word matches
+    */
+   private static boolean takeAndMatch(String pattern, int next, String word, int w, int[] count, int numBlanks){
+      int letter = word.charAt(w) - 'a';
+      if(count == null){ return matches(pattern, next, word, w + 1, null, 0); }
+      if(letter >= 0 && letter < ALPHABET_SIZE && count[letter] > 0){
+         count[letter]--;
+         boolean found = matches(pattern, next, word, w + 1, count, numBlanks);
+         count[letter]++;
+         return found;
+      }
+      return numBlanks > 0 && matches(pattern, next, word, w + 1, count, numBlanks - 1);
+   }
+}
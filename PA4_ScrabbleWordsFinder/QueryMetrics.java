@@ -0,0 +1,245 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+   In-process totals of the RackQueryEvent counts of every rack WordFinder answers, and a histogram of
+   how long the racks took, for seeing where query time goes in a running process.
+   Counting is off until setEnabled(true). While it is off, a query only reads one volatile flag, so it
+   can be left on the hot path; while it is on, each query adds to a few striped counters, which
+   threads on many cores can update without contending.
+ */
+public class QueryMetrics {
+   /**
+      Representation invariant:
+      latency[i] counts the queries that took at least 2^(i-1) and less than 2^i microseconds (the last
+      bucket has no upper bound, and bucket 0 is for less than 1 microsecond).
+   */
+   public static final int NUM_BUCKETS = 32;
+
+   private static volatile boolean enabled;
+   private static final LongAdder queries = new LongAdder();
+   private static final LongAdder cached = new LongAdder();
+   private static final LongAdder subsets = new LongAdder();
+   private static final LongAdder pruned = new LongAdder();
+   private static final LongAdder probes = new LongAdder();
+   private static final LongAdder hits = new LongAdder();
+   private static final LongAdder wordsScored = new LongAdder();
+   private static final LongAdder words = new LongAdder();
+   private static final LongAdder sortNanos = new LongAdder();
+   private static final LongAdder queryNanos = new LongAdder();
+   private static final LongAdder[] latency = new LongAdder[NUM_BUCKETS];
+
+   static{
+      for(int i = 0; i < NUM_BUCKETS; i++){ latency[i] = new LongAdder(); }
+   }
+
+   /**
+      Whether queries are being counted.
+      @return whether counting is on
+    */
+   public static boolean isEnabled(){
+      return enabled;
+   }
+
+   /**
+      Turn counting on or off. The totals so far are kept.
+      @param on  whether to count queries from now on
+    */
+   public static void setEnabled(boolean on){
+      enabled = on;
+   }
+
+   /**
+      Add one query to the totals.
+      @param query  the counts of the query
+      @param nanos  how long the query took
+    */
+   public static void record(RackQueryEvent query, long nanos){
+      queries.increment();
+      if(query.cached){ cached.increment(); }
+      subsets.add(query.subsets);
+      pruned.add(query.pruned);
+      probes.add(query.probes);
+      hits.add(query.hits);
+      wordsScored.add(query.wordsScored);
+      words.add(query.words);
+      sortNanos.add(query.sortNanos);
+      queryNanos.add(nanos);
+      long micros = Math.max(0, nanos / 1000);
+      latency[Math.min(NUM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros))].increment();
+   }
+
+   /**
+      Set every total back to zero. Queries counted at the same time may be partly kept.
+    */
+   public static void reset(){
+      for(LongAdder total : new LongAdder[]{queries, cached, subsets, pruned, probes, hits, wordsScored,
+                                            words, sortNanos, queryNanos}){
+         total.reset();
+      }
+      for(LongAdder bucket : latency){ bucket.reset(); }
+   }
+
+   /**
+      Get the totals so far. Queries counted at the same time may be partly included.
+      @return a copy of the totals
+    */
+   public static Snapshot snapshot(){
+      return new Snapshot();
+   }
+
+   /**
+      The totals at one moment. Never modified once made.
+    */
+   public static class Snapshot {
+      private long numQueries;
+      private long numCached;
+      private long numSubsets;
+      private long numPruned;
+      private long numProbes;
+      private long numHits;
+      private long numScored;
+      private long numWords;
+      private long totalSortNanos;
+      private long totalNanos;
+      private long[] histogram = new long[NUM_BUCKETS];
+
+      /**
+         Copy the current totals.
+       */
+      private Snapshot(){
+         numQueries = queries.sum();
+         numCached = cached.sum();
+         numSubsets = subsets.sum();
+         numPruned = pruned.sum();
+         numProbes = probes.sum();
+         numHits = hits.sum();
+         numScored = wordsScored.sum();
+         numWords = words.sum();
+         totalSortNanos = sortNanos.sum();
+         totalNanos = queryNanos.sum();
+         for(int i = 0; i < NUM_BUCKETS; i++){ histogram[i] = latency[i].sum(); }
+      }
+
+      /**
+         Get the number of queries.
+         @return the number of racks answered
+       */
+      public long queries(){
+         return numQueries;
+      }
+
+      /**
+         Get the number of queries answered from the rack cache.
+         @return the number of cached queries
+       */
+      public long cached(){
+         return numCached;
+      }
+
+      /**
+         Get the number of sub-racks generated.
+         @return the number of sub-racks
+       */
+      public long subsets(){
+         return numSubsets;
+      }
+
+      /**
+         Get the number of sub-racks ruled out by the feasibility summary.
+         @return the number of sub-racks skipped
+       */
+      public long pruned(){
+         return numPruned;
+      }
+
+      /**
+         Get the number of sub-racks looked up in the dictionary.
+         @return the number of dictionary probes
+       */
+      public long probes(){
+         return numProbes;
+      }
+
+      /**
+         Get the number of sub-racks found in a sub-rack memo.
+         @return the number of memo hits
+       */
+      public long hits(){
+         return numHits;
+      }
+
+      /**
+         Get the number of words scored.
+         @return the number of words scored
+       */
+      public long wordsScored(){
+         return numScored;
+      }
+
+      /**
+         Get the number of words found, over all queries.
+         @return the number of words
+       */
+      public long words(){
+         return numWords;
+      }
+
+      /**
+         Get the time spent sorting words by score.
+         @return the total sort time in nanoseconds
+       */
+      public long sortNanos(){
+         return totalSortNanos;
+      }
+
+      /**
+         Get the time spent answering queries.
+         @return the total query time in nanoseconds
+       */
+      public long queryNanos(){
+         return totalNanos;
+      }
+
+      /**
+         Get the latency histogram: bucket i counts the queries that took at least 2^(i-1) and less
+         than 2^i microseconds, bucket 0 those that took less than 1 microsecond.
+         @return a new array of NUM_BUCKETS counts
+       */
+      public long[] latencyHistogram(){
+         return histogram.clone();
+      }
+
+      /**
+         Get an upper bound on a percentile of the query latency, from the histogram.
+         @param percent  the percentile, 0 to 100
+         @return the upper end of the bucket holding that percentile, in microseconds, or 0 if there
+                 were no queries
+       */
+      public long latencyPercentileMicros(double percent){
+         long total = 0;
+         for(long count : histogram){ total += count; }
+         long seen = 0;
+         for(int i = 0; i < NUM_BUCKETS; i++){
+            seen += histogram[i];
+            if(total > 0 && seen >= Math.ceil(total * percent / 100)){ return 1L << i; }
+         }
+         return 0;
+      }
+
+      /**
+         Get the totals as a few lines of text.
+         @return the totals, with the latency percentiles
+       */
+      @Override
+      public String toString(){
+         double perQuery = Math.max(1, numQueries);
+         return String.format("%d queries (%d cached), %.1f ms total, %.1f ms sorting%n"
+                              + "per query: %.1f sub-racks, %.1f pruned, %.1f probes, %.1f memo hits, %.1f words scored, %.1f words%n"
+                              + "latency: p50 < %d us, p90 < %d us, p99 < %d us",
+                              numQueries, numCached, totalNanos / 1e6, totalSortNanos / 1e6,
+                              numSubsets / perQuery, numPruned / perQuery, numProbes / perQuery, numHits / perQuery,
+                              numScored / perQuery, numWords / perQuery,
+                              latencyPercentileMicros(50), latencyPercentileMicros(90), latencyPercentileMicros(99));
+      }
+   }
+}
@@ -1,8 +1,5 @@
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Map;
-import java.util.HashMap;
-import java.util.Iterator;
 
 /**
    A Rack of Scrabble tiles
@@ -11,9 +8,30 @@ import java.util.Iterator;
 public class Rack {
    /**
       Representation invariant:
-      The string the rack refers to must only contains letters.
+      The string the rack refers to must only contains letters and blank tiles.
+      unique holds the distinct tiles of rack in sorted order, and mult[i] is the number of
+      times unique[i] occurs in rack.
+      E.g. rack = "cabbac", then unique: {a, b, c};  mult: {2, 2, 2}.
    */
    private String rack;
+   private char[] unique;
+   private int[] mult;
+   
+   public static final char BLANK = '_';
+   public static final char BLANK_ALT = '?';
+   
+   /**
+      Receives the sub-multisets of a rack, one at a time (see forEachSubset).
+   */
+   public interface SubsetVisitor {
+      /**
+         Called once for each sub-multiset of the rack.
+         @param subset the tiles of the sub-multiset, in sorted order, in subset[0 .. length-1];
+                       the array is reused, so it is only valid during the call
+         @param length the number of tiles in the sub-multiset
+      */
+      void visit(char[] subset, int length);
+   }
    
    /**
       create a rack with given string.
@@ -21,106 +39,81 @@ public class Rack {
    */
    public Rack(String rack){
       this.rack = rack;  
+      
+      char[] sorted = rack.toCharArray();
+      Arrays.sort(sorted);
+      unique = new char[sorted.length];
+      mult = new int[sorted.length];
+      int numUnique = 0;
+      for(int i = 0; i < sorted.length; i++){
+         if(numUnique > 0 && unique[numUnique - 1] == sorted[i]){ mult[numUnique - 1]++; }
+         else{
+            unique[numUnique] = sorted[i];
+            mult[numUnique++] = 1;
+         }
+      }
+      unique = Arrays.copyOf(unique, numUnique);
+      mult = Arrays.copyOf(mult, numUnique);
    }
   
    /**
-      Get all subsets by unique string and their multiplicity, and then use allSubsets() method.
-      @return a ArrayList contains all the subsets of rack
+      Whether a tile is blank. A blank tile can stand for any letter and is worth no points.
+      Both '_' and '?' are accepted as blanks.
+      @param c the tile to check
+      @return whether c is a blank tile
    */
-   public ArrayList<String> getAllSubsets(){
-      return new ArrayList<String>(allSubsets(getUniqueString(letterCount(rack)), 
-                                 getMultiplicity(letterCount(rack)), 
-                                 0));
+   public static boolean isBlank(char c){
+      return c == BLANK || c == BLANK_ALT;
    }
    
    /**
-      Use a HashMap to store the letter and its corresponding multiplity.
-      E.g. s = "abbccc", then keys: {a, b, c};  values: {1, 2, 3}.
-      @return a HashMap which keys are letters and values are multiplicities of letters.
+      Get all subsets of the rack, each represented as a String that can have repeated characters in it.
+      E.g. rack = "abb", then return {"", "b", "bb", "a", "ab", "abb"}.
+      @return a ArrayList contains all the subsets of rack
    */
-   private Map<Character, Integer> letterCount(String s){
-      Map<Character, Integer> letterCounter = new HashMap();
-      
-      for(char ch : s.toCharArray()){
-         if(letterCounter.containsKey(ch)){
-            letterCounter.put(ch, letterCounter.get(ch) + 1); 
-         }
-         else{ 
-            letterCounter.put(ch, 1); 
-         }
-      }
-      return letterCounter;
+   public ArrayList<String> getAllSubsets(){
+      ArrayList<String> allCombos = new ArrayList<String>(numSubsets());
+      forEachSubset((subset, length) -> allCombos.add(new String(subset, 0, length)));
+      return allCombos;
    }
    
    /**
-      Get unique string from the keys of map. Since keys are unique, just iterate the keys and form a string.
-      @param map input map to process
-      @return a unique string formed by keys
+      Get the number of sub-multisets of the rack (including the empty one and the whole rack).
+      @return the product of (multiplicity + 1) over the distinct tiles
    */
-   private String getUniqueString(Map<Character, Integer> map){
-      String uniqueStr = "";
-      Iterator<Character> iter = map.keySet().iterator();
-      
-      while(iter.hasNext()){
-         uniqueStr += iter.next();
-      }
-      return uniqueStr;
+   public int numSubsets(){
+      long count = 1;
+      for(int m : mult){ count = Math.min(count * (m + 1), Integer.MAX_VALUE); }
+      return (int) count;
    }
    
    /**
-      Get multiplicity from the values of map.
-      @param map input map to process
-      @return a int[] which has corresponding multiplicity as keys
+      Hand every sub-multiset of the rack to visitor, without creating anything per sub-multiset.
+      The sub-multisets are enumerated like an odometer over the letter counts: count[i] is a digit
+      running from 0 to mult[i], and the last distinct tile is the fastest-changing digit. The tiles of
+      the current sub-multiset are kept in one reused array, ordered by distinct tile, so each step only
+      drops the trailing tiles of the digits that wrap around and appends one tile.
+      E.g. rack = "abb" visits "", "b", "bb", "a", "ab", "abb" in that order.
+      @param visitor receives each sub-multiset
    */
-   private int[] getMultiplicity(Map<Character, Integer> map){
-      int index = 0;
-      int[] mult = new int[map.size()];
-      Iterator<Integer> iter = map.values().iterator();
-       
-      while(iter.hasNext()){
-         mult[index] = iter.next();
-         index++;
-      }
-      return mult;
-   }
-
-
-   /**
-      Finds all subsets of the multiset starting at position k in unique and mult.
-      unique and mult describe a multiset such that mult[i] is the multiplicity of the char
-           unique.charAt(i).
-      PRE: mult.length must be at least as big as unique.length()
-           0 <= k <= unique.length()
-      @param unique a string of unique letters
-      @param mult the multiplicity of each letter from unique.  
-      @param k the smallest index of unique and mult to consider.
-      @return all subsets of the indicated multiset.  Unlike the multiset in the parameters,
-      each subset is represented as a String that can have repeated characters in it.
-      @author Claire Bono
-    */
-   private static ArrayList<String> allSubsets(String unique, int[] mult, int k) {
-      ArrayList<String> allCombos = new ArrayList<>();
-      
-      if (k == unique.length()) {  // multiset is empty
-         allCombos.add("");
-         return allCombos;
-      }
+   public void forEachSubset(SubsetVisitor visitor){
+      int[] count = new int[unique.length];
+      char[] subset = new char[rack.length()];
+      int length = 0;
       
-      // get all subsets of the multiset without the first unique char
-      ArrayList<String> restCombos = allSubsets(unique, mult, k+1);
-      
-      // prepend all possible numbers of the first char (i.e., the one at position k) 
-      // to the front of each string in restCombos.  Suppose that char is 'a'...
-      
-      String firstPart = "";          // in outer loop firstPart takes on the values: "", "a", "aa", ...
-      for (int n = 0; n <= mult[k]; n++) {   
-         for (int i = 0; i < restCombos.size(); i++) {  // for each of the subsets 
-                                                        // we found in the recursive call
-            // create and add a new string with n 'a's in front of that subset
-            allCombos.add(firstPart + restCombos.get(i));  
+      while(true){
+         visitor.visit(subset, length);
+         
+         int i = unique.length - 1;
+         while(i >= 0 && count[i] == mult[i]){//this digit wraps around: drop its tiles from the end
+            length -= count[i];
+            count[i] = 0;
+            i--;
          }
-         firstPart += unique.charAt(k);  // append another instance of 'a' to the first part
+         if(i < 0){ return; }//every digit wrapped: all sub-multisets visited
+         
+         count[i]++;//the tiles of digit i are now last, so the new one goes at the end
+         subset[length++] = unique[i];
       }
-      return allCombos;
    }
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+   A JDK Flight Recorder event for one rack answered by WordFinder, recorded only while a recording
+   has it enabled, e.g. with java -XX:StartFlightRecording=filename=wf.jfr WordFinder ...
+   The counts are also what QueryMetrics adds up in process.
+   Racks answered from the rack cache have cached set and no other counts. Racks answered by walking
+   the word graph, rather than through a SubRackMemo, generate no sub-racks and probe nothing.
+ */
+@Name("WordFinder.RackQuery")
+@Label("Rack Query")
+@Category("WordFinder")
+@Description("One rack answered by WordFinder")
+public class RackQueryEvent extends Event {
+   @Label("Rack")
+   String rack;
+
+   @Label("Cached")
+   @Description("Whether the words came from the rack cache")
+   boolean cached;
+
+   @Label("Sub-racks")
+   @Description("Sub-racks generated from the rack")
+   long subsets;
+
+   @Label("Pruned")
+   @Description("Sub-racks ruled out by the feasibility summary")
+   long pruned;
+
+   @Label("Dictionary Probes")
+   @Description("Sub-racks looked up in the dictionary")
+   long probes;
+
+   @Label("Memo Hits")
+   @Description("Sub-racks found in the sub-rack memo")
+   long hits;
+
+   @Label("Words Scored")
+   long wordsScored;
+
+   @Label("Words")
+   @Description("Words that can be made from the rack")
+   long words;
+
+   @Label("Sort Time")
+   @Timespan(Timespan.NANOSECONDS)
+   long sortNanos;
+}
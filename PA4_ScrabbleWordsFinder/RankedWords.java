@@ -0,0 +1,87 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+   The words of one rack in the order WordFinder prints them: by descending score, and alphabetically
+   among words with the same score.
+   Scores are small integers, so the words are ordered by a counting sort over score buckets instead
+   of a comparison sort, and stored as one array of words and one of plain int scores, with no boxing
+   or map entries per word. Never modified once made, so it can be cached and shared between threads.
+ */
+public class RankedWords {
+   /**
+      Representation invariant:
+      words.length == scores.length; scores is non-increasing, and words[i .. j] is in alphabetical
+      order wherever scores[i] == scores[j].
+   */
+   private String[] words;
+   private int[] scores;
+
+   /**
+      Rank the given words.
+      @param found  the words with their scores; no word may occur twice
+      @param alphabetical  whether found is already in alphabetical order, as word graph searches are;
+             if not, each score bucket is sorted after the words have been distributed
+    */
+   public RankedWords(List<ScoredWord> found, boolean alphabetical){
+      int n = found.size();
+      words = new String[n];
+      scores = new int[n];
+      if(n == 0){ return; }
+
+      int min = Integer.MAX_VALUE;
+      int max = Integer.MIN_VALUE;
+      for(int i = 0; i < n; i++){
+         int score = found.get(i).getScore();
+         min = Math.min(min, score);
+         max = Math.max(max, score);
+      }
+
+      // start[max - s] is where the words that score s begin, so the best scores come first
+      int[] start = new int[max - min + 2];
+      for(int i = 0; i < n; i++){ start[max - found.get(i).getScore() + 1]++; }
+      for(int b = 1; b < start.length; b++){ start[b] += start[b - 1]; }
+
+      for(int i = 0; i < n; i++){//stable, so each bucket keeps the order of found
+         ScoredWord word = found.get(i);
+         int pos = start[max - word.getScore()]++;
+         words[pos] = word.getWord();
+         scores[pos] = word.getScore();
+      }
+      if(!alphabetical){
+         int from = 0;
+         for(int to = 1; to <= n; to++){
+            if(to == n || scores[to] != scores[from]){
+               Arrays.sort(words, from, to);//a bucket has a single score, so only the words move
+               from = to;
+            }
+         }
+      }
+   }
+
+   /**
+      Get the number of words.
+      @return the number of words
+    */
+   public int size(){
+      return words.length;
+   }
+
+   /**
+      Get a word.
+      @param i  the rank of the word, 0 for the best
+      @return the word
+    */
+   public String getWord(int i){
+      return words[i];
+   }
+
+   /**
+      Get the score of a word.
+      @param i  the rank of the word, 0 for the best
+      @return the score
+    */
+   public int getScore(int i){
+      return scores[i];
+   }
+}
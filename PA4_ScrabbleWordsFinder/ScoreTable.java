@@ -7,8 +7,9 @@ import java.util.Arrays;
 public class ScoreTable{
    /**
       Representation invariant:
-      The string word refers to must only contain letters.
+      The string word refers to must only contain letters and blank tiles (see Rack.isBlank).
       Upper case and lower case have the same score.
+      (0 points)-blank tiles
       (1 point)-A, E, I, O, U, L, N, S, T, R
       (2 points)-D, G
       (3 points)-B, C, M, P
@@ -34,19 +35,33 @@ public class ScoreTable{
       @return the score of string
    */
    public int getScore(){
+      return scoreOf(word);
+   }
+   
+   /**
+      Calculate the score of a word without creating a ScoreTable or a lower case copy of the word.
+      Upper case and lower case have the same score, and blank tiles score zero.
+      @param word the tiles to score
+      @return the score of word
+   */
+   public static int scoreOf(CharSequence word){
       int score = 0;
       for(int i = 0; i < word.length(); i++){
-         score += letterScore(word.charAt(i));
+         score += getLetterScore(word.charAt(i));
       }
       return score;
    }
    
    /**
-      To give score for a specific letter.
-      @param c the single character of a string
-      @return the score of the character c
+      To give score for a specific tile, without creating a ScoreTable.
+      Upper case and lower case have the same score; blank tiles and characters other than
+      the letters a-z score zero.
+      @param c the tile
+      @return the score of the tile c
    */
-   private int letterScore(char c){
-      return SCORE[c-'a'];
+   public static int getLetterScore(char c){
+      int letter = Character.toLowerCase(c) - 'a';
+      if(letter < 0 || letter >= SCORE.length){ return 0; }
+      return SCORE[letter];
    }
 }
\ No newline at end of file
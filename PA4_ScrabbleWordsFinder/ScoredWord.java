@@ -0,0 +1,55 @@
+import java.util.Comparator;
+
+/**
+   A word together with its score.
+ */
+public class ScoredWord {
+   /**
+      Orders scored words the way WordFinder prints them: by descending score, and alphabetically
+      among words with the same score.
+   */
+   public static final Comparator<ScoredWord> BEST_FIRST = new Comparator<ScoredWord>(){
+      public int compare(ScoredWord a, ScoredWord b){
+         if(a.score != b.score){ return b.score - a.score; }
+         return a.word.compareTo(b.word);
+      }
+   };
+
+   private String word;
+   private int score;
+
+   /**
+      Create a scored word.
+      @param word  the word
+      @param score  its score
+    */
+   public ScoredWord(String word, int score){
+      this.word = word;
+      this.score = score;
+   }
+
+   /**
+      Get the word.
+      @return the word
+    */
+   public String getWord(){
+      return word;
+   }
+
+   /**
+      Get the score of the word.
+      @return the score
+    */
+   public int getScore(){
+      return score;
+   }
+
+   /**
+      Format the scored word as WordFinder prints it, e.g. "8: calm".
+      @return the score, a colon and the word
+    */
+   @Override
+   public String toString(){
+      return score + ": " + word;
+   }
+}
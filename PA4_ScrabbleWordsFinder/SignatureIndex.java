@@ -0,0 +1,104 @@
+import java.util.Arrays;
+
+/**
+   An open-addressing hash table from letter signatures (see LetterSignature) to bucket numbers.
+   Keys and values are stored in two primitive arrays, so lookups neither box nor allocate.
+ */
+public class SignatureIndex {
+   /**
+      Representation invariant:
+      keys.length == values.length is a power of two, and at most half of the slots are in use.
+      An unused slot has key LetterSignature.NONE, which is never a valid signature.
+      A key is stored at the first free slot found by linear probing from slot(key).
+   */
+   private long[] keys;
+   private int[] values;
+   private int size;
+
+   /**
+      Create an empty index with room for the expected number of keys before it has to grow.
+      @param expectedSize  the expected number of keys
+    */
+   public SignatureIndex(int expectedSize){
+      int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+      keys = new long[capacity];
+      values = new int[capacity];
+      Arrays.fill(keys, LetterSignature.NONE);
+   }
+
+   /**
+      Create an index with the same contents as another, which is left unchanged.
+      @param other  the index to copy
+    */
+   public SignatureIndex(SignatureIndex other){
+      keys = other.keys.clone();
+      values = other.values.clone();
+      size = other.size;
+   }
+
+   /**
+      Get the bucket number stored for a signature.
+      @param sig  the signature to look up
+      @return the bucket number, or -1 if sig is not in the index
+    */
+   public int get(long sig){
+      int mask = keys.length - 1;
+      for(int i = slot(sig); ; i = (i + 1) & mask){
+         long key = keys[i];
+         if(key == sig){ return values[i]; }
+         if(key == LetterSignature.NONE){ return -1; }
+      }
+   }
+
+   /**
+      Store a bucket number for a signature, replacing any number stored before.
+      @param sig  the signature, not LetterSignature.NONE
+      @param value  the bucket number, not negative
+    */
+   public void put(long sig, int value){
+      if(2 * (size + 1) > keys.length){ grow(); }
+      int mask = keys.length - 1;
+      int i = slot(sig);
+      while(keys[i] != LetterSignature.NONE && keys[i] != sig){
+         i = (i + 1) & mask;
+      }
+      if(keys[i] == LetterSignature.NONE){ size++; }
+      keys[i] = sig;
+      values[i] = value;
+   }
+
+   /**
+      Get the number of signatures in the index.
+      @return the number of keys
+    */
+   public int size(){
+      return size;
+   }
+
+   /**
+      Double the table and re-insert every key.
+    */
+   private void grow(){
+      long[] oldKeys = keys;
+      int[] oldValues = values;
+      keys = new long[oldKeys.length * 2];
+      values = new int[oldValues.length * 2];
+      Arrays.fill(keys, LetterSignature.NONE);
+      size = 0;
+
+      for(int i = 0; i < oldKeys.length; i++){
+         if(oldKeys[i] != LetterSignature.NONE){ put(oldKeys[i], oldValues[i]); }
+      }
+   }
+
+   /**
+      Get the home slot of a signature. The bits are mixed first because nearby signatures (which differ
+      only in a few low fields) would otherwise crowd into the same run of slots.
+      @param sig  the signature
+      @return the first slot to probe
+    */
+   private int slot(long sig){
+      long h = sig * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32)) & (keys.length - 1);
+   }
+}
@@ -0,0 +1,172 @@
+import java.util.ArrayList;
+
+/**
+   A lookup layer between Rack and AnagramDictionary for batches of racks that overlap, as the racks of
+   a game log do: every rack keeps the tiles its player didn't play, and the common letters turn up in
+   rack after rack. The words of a rack are gathered from the anagrams of each of its sub-racks, and
+   the memo remembers those anagrams, with the scores stored in the dictionary, by the sub-rack's letter
+   counts; a sub-rack that any earlier rack in the batch also had is then not looked up again. Sub-racks
+   that the dictionary's FeasibilitySummary rules out are skipped here, once, without being remembered.
+   The memo is a window over the recent racks: it starts over when it has remembered maxEntries
+   sub-racks, or when the dictionary is updated.
+   Only racks of letters 'a'-'z' (no blanks) of up to MAX_RACK_LENGTH tiles are memoized; other racks
+   are passed straight to the dictionary.
+   A memo is not thread-safe; threads that answer racks in parallel should each have their own.
+ */
+public class SubRackMemo {
+   /**
+      Representation invariant:
+      for every sub-rack remembered in the current window, index maps its signature (under KEYS) to the
+      position in words of its anagrams with their scores; the entries were computed from dictionary
+      version version, and there are at most maxEntries of them.
+      Of the subsets sub-racks generated so far, pruned were ruled out and hits + misses were looked up;
+      scored is the number of words the misses found, with their scores.
+   */
+   public static final int MAX_RACK_LENGTH = 8;
+   public static final int DEFAULT_MAX_ENTRIES = 1 << 18;
+
+   // 3 bits for each of the 11 letters that have more than three tiles in a standard set, 2 for the rest,
+   // so every rack of real tiles has a signature
+   private static final LetterSignature KEYS = new LetterSignature(new int[]{
+      3, 2, 2, 3, 3, 2, 2, 2, 3, 2, 2, 3, 2, 3, 3, 2, 2, 3, 3, 3, 3, 2, 2, 2, 2, 2});
+
+   private AnagramDictionary dic;
+   private int maxEntries;
+   private long version;
+   private FeasibilitySummary feasibility;
+   private SignatureIndex index;
+   private ArrayList<ScoredWord[]> words;
+   private long subsets;
+   private long pruned;
+   private long hits;
+   private long misses;
+   private long scored;
+
+   /**
+      Create an empty memo of the default size.
+      @param dic  the dictionary to look words up in
+    */
+   public SubRackMemo(AnagramDictionary dic){
+      this(dic, DEFAULT_MAX_ENTRIES);
+   }
+
+   /**
+      Create an empty memo.
+      @param dic  the dictionary to look words up in
+      @param maxEntries  the number of sub-racks to remember before starting over
+    */
+   public SubRackMemo(AnagramDictionary dic, int maxEntries){
+      this.dic = dic;
+      this.maxEntries = maxEntries;
+      clear();
+   }
+
+   /**
+      Get all the words that can be made from some or all of the tiles of rack, with their scores,
+      like AnagramDictionary.getScoredWordsFrom, but in no particular order.
+      @param rack  the tiles available; each may be used as many times as it occurs in rack
+      @return a new list of the words that can be made from rack, with their scores
+    */
+   public ArrayList<ScoredWord> getScoredWordsFrom(String rack){
+      if(rack.length() > MAX_RACK_LENGTH || KEYS.of(rack) == LetterSignature.NONE){
+         return dic.getScoredWordsFrom(rack);
+      }
+      if(version != dic.getVersion() || words.size() >= maxEntries){ clear(); }
+
+      ArrayList<ScoredWord> result = new ArrayList<ScoredWord>();
+      new Rack(rack).forEachSubset((subset, length) -> {
+         subsets++;
+         if(!feasibility.mayHaveAnagrams(subset, length)){
+            pruned++;
+            return;
+         }
+         for(ScoredWord word : lookup(subset, length)){ result.add(word); }
+      });
+      return result;
+   }
+
+   /**
+      Forget every sub-rack, keeping the counts.
+    */
+   public void clear(){
+      version = dic.getVersion();
+      feasibility = dic.getFeasibility();
+      index = new SignatureIndex(Math.min(maxEntries, 1024));
+      words = new ArrayList<ScoredWord[]>();
+   }
+
+   /**
+      Get the number of sub-racks generated from memoized racks, the empty one included.
+      @return the number of sub-racks
+    */
+   public long subsets(){
+      return subsets;
+   }
+
+   /**
+      Get the number of sub-racks that the feasibility summary ruled out.
+      @return the number of sub-racks skipped
+    */
+   public long pruned(){
+      return pruned;
+   }
+
+   /**
+      Get the number of sub-racks that were found in the memo.
+      @return the number of hits
+    */
+   public long hits(){
+      return hits;
+   }
+
+   /**
+      Get the number of sub-racks that had to be looked up in the dictionary.
+      @return the number of misses
+    */
+   public long misses(){
+      return misses;
+   }
+
+   /**
+      Get the number of words found, with their stored scores, by the sub-racks that missed.
+      @return the number of words scored
+    */
+   public long scored(){
+      return scored;
+   }
+
+   /**
+      Get the memo's hit and miss counts and size, for tuning.
+      @return a one-line summary of the memo
+    */
+   @Override
+   public String toString(){
+      long lookups = hits + misses;
+      double rate = (lookups == 0) ? 0 : 100.0 * hits / lookups;
+      return String.format("%d hits, %d misses (%.1f%% hit rate), %d/%d entries", hits, misses, rate, words.size(), maxEntries);
+   }
+
+   /**
+      Get the anagrams of a sub-rack with their scores, looking them up if the sub-rack isn't remembered yet.
+      PRE: the feasibility summary allows the sub-rack
+      @param letters  array holding the tiles of the sub-rack, in letters[0 .. length-1]
+      @param length  the number of tiles
+      @return the scored anagrams of the sub-rack; shared, and must not be modified
+    */
+   private ScoredWord[] lookup(char[] letters, int length){
+      long sig = 0;
+      for(int i = 0; i < length; i++){ sig = KEYS.add(sig, letters[i]); }
+      int entry = index.get(sig);
+      if(entry >= 0){
+         hits++;
+         return words.get(entry);
+      }
+      misses++;
+
+      ScoredWord[] anagrams = dic.getScoredAnagramsOf(letters, length);
+      scored += anagrams.length;
+      index.put(sig, words.size());
+      words.add(anagrams);
+      return anagrams;
+   }
+}
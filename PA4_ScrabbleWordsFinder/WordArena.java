@@ -0,0 +1,240 @@
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.SortedMap;
+
+/**
+   A compact, read-only store of anagram sets. The words of all the sets are packed one after another
+   into a single byte array, one byte per character (two if any word has a character outside ISO-8859-1),
+   and a set is just the range of that array that holds its words; since every word of a set is as long
+   as the set's key, no per-word offsets are needed.
+   Sets are found by binary search over their letter signatures (see LetterSignature), so there is no
+   String, list or hash table entry per word or per set, and the whole store costs little more than the
+   characters of its words. Strings are only created when a word is asked for.
+ */
+public class WordArena {
+   /**
+      Representation invariant:
+      Sets 0 .. sigs.length-1 are the sets whose words have a signature, in increasing order of
+      signature, and sigs[b] is the signature of set b. Sets sigs.length .. numBuckets()-1 are the few
+      sets that have none, in order of their keys, and otherKeys[b - sigs.length] is the key of set b.
+      The words of set b are in text[start[b] .. start[b+1]-1], each one length[b] characters long, and
+      every character takes charWidth bytes: 1 for ISO-8859-1, or 2 for big-endian UTF-16.
+      No set is empty.
+   */
+   private LetterSignature letterSignature;
+   private long[] sigs;
+   private String[] otherKeys;
+   private int[] start;
+   private char[] length;
+   private byte[] text;
+   private int charWidth;
+
+   /**
+      Pack the given anagram sets. Empty sets are left out.
+      @param buckets  anagram sets keyed by their canonical (sorted) form
+      @param letterSignature  the signature layout used to find the sets
+      PRE: no word is longer than Character.MAX_VALUE characters
+    */
+   public WordArena(SortedMap<String, ? extends List<String>> buckets, LetterSignature letterSignature){
+      this.letterSignature = letterSignature;
+      ArrayList<Long> signed = new ArrayList<Long>();
+      ArrayList<List<String>> signedSets = new ArrayList<List<String>>();
+      ArrayList<String> others = new ArrayList<String>();
+      ArrayList<List<String>> otherSets = new ArrayList<List<String>>();
+      int numChars = 0;
+      charWidth = 1;
+
+      for(Map.Entry<String, ? extends List<String>> entry : buckets.entrySet()){
+         String key = entry.getKey();
+         if(entry.getValue().isEmpty()){ continue; }
+         long sig = letterSignature.of(key);
+         if(sig == LetterSignature.NONE){
+            others.add(key);//the map is sorted, so these stay in order of their keys
+            otherSets.add(entry.getValue());
+         }
+         else{
+            signed.add(sig);
+            signedSets.add(entry.getValue());
+         }
+         numChars += key.length() * entry.getValue().size();
+         for(int i = 0; i < key.length(); i++){
+            if(key.charAt(i) > 0xff){ charWidth = 2; }
+         }
+      }
+
+      int numSigs = signed.size();
+      int numBuckets = numSigs + others.size();
+      sigs = new long[numSigs];
+      for(int i = 0; i < numSigs; i++){ sigs[i] = signed.get(i); }
+      Arrays.sort(sigs);
+      List<?>[] sets = new List<?>[numBuckets];
+      for(int i = 0; i < numSigs; i++){
+         sets[Arrays.binarySearch(sigs, signed.get(i))] = signedSets.get(i);//signatures are distinct
+      }
+      for(int i = 0; i < others.size(); i++){
+         sets[numSigs + i] = otherSets.get(i);
+      }
+      otherKeys = others.toArray(new String[0]);
+
+      start = new int[numBuckets + 1];
+      length = new char[numBuckets];
+      text = new byte[numChars * charWidth];
+      int pos = 0;
+      for(int b = 0; b < numBuckets; b++){
+         start[b] = pos;
+         for(Object word : sets[b]){
+            String w = (String) word;
+            length[b] = (char) w.length();
+            for(int i = 0; i < w.length(); i++){
+               char ch = w.charAt(i);
+               if(charWidth == 2){ text[pos++] = (byte) (ch >>> 8); }
+               text[pos++] = (byte) ch;
+            }
+         }
+      }
+      start[numBuckets] = pos;
+   }
+
+   /**
+      Get the number of anagram sets.
+      @return the number of sets
+    */
+   public int numBuckets(){
+      return length.length;
+   }
+
+   /**
+      Find the anagram set of a string. This method is case-sensitive.
+      @param s  the string to look up
+      @return the number of the set holding the anagrams of s, or -1 if there are none
+    */
+   public int bucketOf(String s){
+      long sig = letterSignature.of(s);
+      if(sig != LetterSignature.NONE){ return bucketOf(sig); }
+
+      char[] sorted = s.toCharArray();
+      Arrays.sort(sorted);
+      int i = Arrays.binarySearch(otherKeys, new String(sorted));
+      return (i >= 0) ? sigs.length + i : -1;
+   }
+
+   /**
+      Find the anagram set with a given letter signature. Nothing is created.
+      @param sig  the signature, as given by the LetterSignature this store was built with
+      @return the number of the set with that signature, or -1 if there is none
+      PRE: sig != LetterSignature.NONE
+    */
+   public int bucketOf(long sig){
+      int i = Arrays.binarySearch(sigs, sig);
+      return (i >= 0) ? i : -1;
+   }
+
+   /**
+      Get the number of words in an anagram set.
+      @param bucket  the number of the set
+      @return the number of words in it
+      PRE: 0 <= bucket < numBuckets()
+    */
+   public int bucketSize(int bucket){
+      if(length[bucket] == 0){ return 1; }//the empty string is the only word of its set
+      return (start[bucket + 1] - start[bucket]) / (length[bucket] * charWidth);
+   }
+
+   /**
+      Get a word of an anagram set, as a new String.
+      @param bucket  the number of the set
+      @param i  the position of the word in the set
+      @return the word
+      PRE: 0 <= bucket < numBuckets() and 0 <= i < bucketSize(bucket)
+    */
+   public String wordAt(int bucket, int i){
+      int n = length[bucket];
+      int from = start[bucket] + i * n * charWidth;
+      if(charWidth == 1){
+         return new String(text, from, n, StandardCharsets.ISO_8859_1);
+      }
+      char[] chars = new char[n];
+      for(int k = 0; k < n; k++){
+         chars[k] = (char) (((text[from + 2 * k] & 0xff) << 8) | (text[from + 2 * k + 1] & 0xff));
+      }
+      return new String(chars);
+   }
+
+   /**
+      Get the key of an anagram set: its words' letters in sorted order.
+      @param bucket  the number of the set
+      @return the canonical form of the set
+      PRE: 0 <= bucket < numBuckets()
+    */
+   public String keyOf(int bucket){
+      if(bucket >= sigs.length){ return otherKeys[bucket - sigs.length]; }
+      char[] key = wordAt(bucket, 0).toCharArray();
+      Arrays.sort(key);
+      return new String(key);
+   }
+
+   /**
+      Get a read-only view of an anagram set. The view holds no Strings: each call to get creates the
+      word it returns.
+      @param bucket  the number of the set
+      @return a list of the set's words, in the order they were given
+      PRE: 0 <= bucket < numBuckets()
+    */
+   public List<String> bucket(int bucket){
+      return new BucketView(bucket);
+   }
+
+   /**
+      Get a copy of an anagram set.
+      @param bucket  the number of the set
+      @return a new list of the set's words, in the order they were given
+      PRE: 0 <= bucket < numBuckets()
+    */
+   public ArrayList<String> copyOfBucket(int bucket){
+      int size = bucketSize(bucket);
+      ArrayList<String> words = new ArrayList<String>(size);
+      for(int i = 0; i < size; i++){ words.add(wordAt(bucket, i)); }
+      return words;
+   }
+
+   /**
+      Get the number of bytes of the arrays behind this store, for comparing footprints.
+      @return the approximate size of this store, not counting object headers
+    */
+   public long sizeInBytes(){
+      long size = 8L * sigs.length + 4L * start.length + 2L * length.length + text.length;
+      for(String key : otherKeys){ size += key.length(); }
+      return size;
+   }
+
+   /**
+      A read-only list of the words of one anagram set that decodes each word when it is asked for.
+    */
+   private class BucketView extends AbstractList<String> implements RandomAccess {
+      private int bucket;
+
+      /**
+         Create a view of a set.
+         @param bucket  the number of the set
+       */
+      private BucketView(int bucket){
+         this.bucket = bucket;
+      }
+
+      @Override
+      public String get(int i){
+         if(i < 0 || i >= size()){ throw new IndexOutOfBoundsException("index " + i + ", size " + size()); }
+         return wordAt(bucket, i);
+      }
+
+      @Override
+      public int size(){
+         return bucketSize(bucket);
+      }
+   }
+}
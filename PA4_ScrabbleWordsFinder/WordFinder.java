@@ -1,38 +1,131 @@
 import java.util.Scanner;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.TreeMap;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Collections;
 import java.util.Map;
-import java.util.Comparator;
+import java.util.WeakHashMap;
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
    A class to read the input and print out the score of words ordered by score.
-   It is case-sensitive and ignores characters other than letters.
+   It is case-sensitive and ignores characters other than letters and blank tiles ('_' or '?').
+   Letters played by a blank score zero.
 */
 public class WordFinder{
-   private static String rack;
    private static final String DEFAULT_FILE_NAME = "sowpods.txt";
+   private static final String SNAPSHOT_SUFFIX = ".snapshot";
+   private static final String BATCH_FLAG = "-batch";
+   private static final String STDIN_NAME = "-";
+   private static final int MAX_PENDING_PER_THREAD = 64;  // racks solved ahead of the output, per thread
+   private static final String CACHE_FLAG = "-cache";
+   private static final int DEFAULT_CACHE_SIZE = 4096;
+   private static final String TOP_FLAG = "-top";
+   private static final String SERVER_FLAG = "-server";
+   private static final int DEFAULT_PORT = 4567;
+   private static final String METRICS_FLAG = "-metrics";
+   private static final String FORMAT_FLAG = "-format";
+   private static final String TEXT_FORMAT = "text";
+   private static final String JSON_FORMAT = "json";
+   private static final String BINARY_FORMAT = "binary";
    
+   // never committed: its isEnabled tells whether a flight recording wants RackQueryEvents
+   private static final RackQueryEvent EVENT_SWITCH = new RackQueryEvent();
+   
+   private static int topCount = 0;  // if positive, only the best topCount words of each rack are printed
+   private static String batchFormat = TEXT_FORMAT;  // how batch mode writes its results
+   
+   // results of recent racks for each dictionary (see rackCacheOf), keyed by the dictionary version and
+   // the rack's tiles in sorted order; guarded by its own lock
+   private static Map<AnagramDictionary, LruCache<String, RankedWords>> rackCaches =
+         new WeakHashMap<AnagramDictionary, LruCache<String, RankedWords>>();
+   private static int cacheSize = DEFAULT_CACHE_SIZE;
+   
+   // the sub-rack memo of each batch worker thread; other threads have none
+   private static ThreadLocal<SubRackMemo> batchMemo = new ThreadLocal<SubRackMemo>();
+   
+   /**
+      Usage: java WordFinder [dictionaryFile] [-batch [rackFile] [-format text|json|binary] | -server [port]]
+                             [-cache size] [-top k] [-metrics]
+      Without -batch or -server, racks are read interactively from the console, one per prompt.
+      With -batch, racks are read one per line from rackFile (or from standard input if rackFile
+      is missing or "-"), solved in parallel, and written to standard output in input order; each
+      worker thread keeps a SubRackMemo, so sub-racks shared by many racks are only looked up once.
+      The -format option chooses how batch results are written:
+         text    as the interactive mode prints them (the default)
+         json    one JSON object per rack and line: {"rack":"abc","words":["bac",...],"scores":[7,...]}
+         binary  per rack, in java.io.DataOutput form: the rack (writeUTF), the number of words (writeInt),
+                 and then each word (writeUTF) and its score (writeShort), best first
+      The results of the last size distinct racks are cached (default 4096, 0 turns the cache off);
+      in batch mode the cache's hit and miss counts are reported on standard error at the end.
+      With -top, only the k best-scoring words of each rack are found and printed.
+      With -server, the dictionary is loaded once and racks are answered over local connections on
+      port (default 4567) until the process is stopped; see WordFinderServer for the protocol.
+      With -metrics, QueryMetrics counts every query, and the totals are reported on standard error
+      when the racks run out. Every query is also recorded as a RackQueryEvent whenever a flight
+      recording is running.
+   */
    public static void main(String[] args){
-      String fileName = "";
+      String fileName = DEFAULT_FILE_NAME;//use default input file
+      boolean batch = false;
+      String rackFileName = STDIN_NAME;
+      int port = -1;  // not serving
       
-      try{
-         if(args.length == 0){ fileName = DEFAULT_FILE_NAME; }//use default input file
-         else{ fileName = args[0]; }
-         
-         AnagramDictionary dic = new AnagramDictionary(fileName);
-         Scanner in = new Scanner(System.in);
-         System.out.println("Type . to quit.");
-         System.out.print("Rack? "); 
-         
-         while(in.hasNextLine()){
-            rack = in.nextLine();
-            if(rack.equals(".")){ break; }
-            else{ printSortedScore(getSubsets(dic, rack)); }
-         System.out.print("Rack? ");
+      for(int i = 0; i < args.length; i++){
+         if(args[i].equals(BATCH_FLAG)){
+            batch = true;
+            if(i + 1 < args.length && (args[i + 1].equals(STDIN_NAME) || !args[i + 1].startsWith("-"))){
+               rackFileName = args[++i];
+            }
+         }
+         else if(args[i].equals(SERVER_FLAG)){
+            port = DEFAULT_PORT;
+            if(i + 1 < args.length && args[i + 1].matches("\\d+")){ port = Integer.parseInt(args[++i]); }
+         }
+         else if(args[i].equals(CACHE_FLAG) && i + 1 < args.length){
+            setCacheSize(Integer.parseInt(args[++i]));
+         }
+         else if(args[i].equals(TOP_FLAG) && i + 1 < args.length){
+            topCount = Integer.parseInt(args[++i]);
          }
+         else if(args[i].equals(METRICS_FLAG)){
+            QueryMetrics.setEnabled(true);
+         }
+         else if(args[i].equals(FORMAT_FLAG) && i + 1 < args.length){
+            batchFormat = args[++i];
+         }
+         else{ fileName = args[i]; }
+      }
+      
+      if(!Arrays.asList(TEXT_FORMAT, JSON_FORMAT, BINARY_FORMAT).contains(batchFormat)){
+         System.out.println("ERROR: Unknown output format \"" + batchFormat + "\", expected text, json or binary.");
+         System.out.println("Exiting program.");
+         return;
+      }
+      
+      try{
+         AnagramDictionary dic = loadDictionary(fileName);
+         if(port >= 0){ new WordFinderServer(dic, port).serve(); }
+         else if(batch){ runBatch(dic, rackFileName); }
+         else{ runInteractive(dic); }
       }
       catch(FileNotFoundException e){
          System.out.println("ERROR: Dictionary file \"" + fileName + "\" does not exist.");
@@ -42,84 +135,374 @@ public class WordFinder{
          System.out.println("ERROR: Illegal dictionary: dictionary file has a duplicate word: " + e);
          System.out.println("Exiting program.");
       }
+      catch(IOException e){
+         System.out.println("ERROR: Cannot serve on port " + port + ": " + e);
+         System.out.println("Exiting program.");
+      }
    }
    
    /**
-      Get the subsets of a string and their scores.
-      @param dic to use getAnagramsof() to get all words
-      @param rack Input string rack
-      @return a TreeMap stores the words as key and scores as values
+      Read racks from the console until "." or end of input, printing the words for each one.
+      @param dic the dictionary to search
    */
-   private static TreeMap<String, Integer> getSubsets(AnagramDictionary dic, String rack){
-      TreeMap<String, Integer> scoreList = new TreeMap<String, Integer>();
-      Rack inRack = new Rack(validInput(rack));
-      ArrayList<String> subsets = new ArrayList<String>(inRack.getAllSubsets()); 
+   private static void runInteractive(AnagramDictionary dic){
+      Scanner in = new Scanner(System.in);
+      PrintWriter out = new PrintWriter(System.out);
+      out.println("Type . to quit.");
+      out.print("Rack? "); 
+      out.flush();
       
-      for(int i = 0; i < subsets.size(); i++){
-         ArrayList<String> words = dic.getAnagramsOf(subsets.get(i));
-
-         if (words != null) {
-            for(int j = 0; j < words.size(); j++){
-               String word = words.get(j);
-               scoreList.put(word, getScore(word));
-            }
+      while(in.hasNextLine()){
+         String rack = in.nextLine();
+         if(rack.equals(".")){ break; }
+         else{ printAnswer(out, dic, rack); }
+         out.print("Rack? ");
+         out.flush();
+      }
+      if(QueryMetrics.isEnabled()){ System.err.println("Query metrics: " + QueryMetrics.snapshot()); }
+   }
+   
+   /**
+      Solve every rack in a file (one rack per line) on all available cores, sharing the read-only
+      dictionary, with a SubRackMemo per thread. Each thread also formats its racks' results, in
+      batchFormat, and the encoded results go through one buffered stream in the same order as the
+      racks. At most a bounded number of racks are solved ahead of the output, so huge inputs don't
+      pile up in memory.
+      @param dic the dictionary to search
+      @param rackFileName the file to read racks from, or "-" for standard input
+   */
+   private static void runBatch(AnagramDictionary dic, String rackFileName){
+      int numThreads = Runtime.getRuntime().availableProcessors();
+      ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+      ArrayDeque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+      BufferedOutputStream out = new BufferedOutputStream(System.out, 1 << 16);
+      String error = null;
+      
+      try(BufferedReader in = rackFileName.equals(STDIN_NAME) 
+                              ? new BufferedReader(new InputStreamReader(System.in))
+                              : Files.newBufferedReader(Paths.get(rackFileName), Charset.defaultCharset())){
+         String line;
+         while((line = in.readLine()) != null){
+            String rack = line;
+            pending.add(pool.submit(() -> {
+               if(batchMemo.get() == null){ batchMemo.set(new SubRackMemo(dic)); }
+               return encode(dic, rack);
+            }));
+            if(pending.size() >= numThreads * MAX_PENDING_PER_THREAD){ out.write(pending.poll().get()); }
+         }
+         while(!pending.isEmpty()){ out.write(pending.poll().get()); }
+      }
+      catch(NoSuchFileException e){
+         error = "ERROR: Rack file \"" + rackFileName + "\" does not exist.";
+      }
+      catch(IOException e){
+         error = "ERROR: Cannot read rack file \"" + rackFileName + "\": " + e;
+      }
+      catch(InterruptedException e){
+         Thread.currentThread().interrupt();
+      }
+      catch(ExecutionException e){
+         throw new IllegalStateException(e.getCause());
+      }
+      finally{
+         pool.shutdownNow();
+         try{
+            out.flush();
+         }
+         catch(IOException e){
+            System.err.println("ERROR: Cannot write results: " + e);
          }
+         if(error != null){
+            System.out.println(error);
+            System.out.println("Exiting program.");
+         }
+         System.err.println("Rack cache: " + rackCacheOf(dic));
+         if(QueryMetrics.isEnabled()){ System.err.println("Query metrics: " + QueryMetrics.snapshot()); }
       }
-      return scoreList;
    }
    
    /**
-      Get the string only contains letters.
-      @param s the string to process
-      @return a string only contains letters.
+      Find and format the words for one rack, exactly as the interactive mode prints them.
+      @param dic the dictionary to search
+      @param rack the rack to solve
+      @return the formatted words and scores
    */
-   private static String validInput(String s){
-      String validStr = "";
+   static String solve(AnagramDictionary dic, String rack){
+      StringWriter result = new StringWriter();
+      PrintWriter out = new PrintWriter(result);
+      printAnswer(out, dic, rack);
+      out.flush();
+      return result.toString();
+   }
+   
+   /**
+      Find the words for one rack and encode them in batchFormat.
+      @param dic the dictionary to search
+      @param rack the rack to solve
+      @return the encoded words and scores
+      @throws IOException never, as nothing is written outside memory
+   */
+   private static byte[] encode(AnagramDictionary dic, String rack) throws IOException {
+      if(batchFormat.equals(TEXT_FORMAT)){ return solve(dic, rack).getBytes(Charset.defaultCharset()); }
       
+      RankedWords words = answer(dic, rack);
+      if(batchFormat.equals(JSON_FORMAT)){
+         StringBuilder json = new StringBuilder("{\"rack\":");
+         appendJsonString(json, rack);
+         json.append(",\"words\":[");
+         for(int i = 0; i < words.size(); i++){
+            if(i > 0){ json.append(','); }
+            appendJsonString(json, words.getWord(i));
+         }
+         json.append("],\"scores\":[");
+         for(int i = 0; i < words.size(); i++){
+            if(i > 0){ json.append(','); }
+            json.append(words.getScore(i));
+         }
+         json.append("]}\n");
+         return json.toString().getBytes(StandardCharsets.UTF_8);
+      }
+      
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + 12 * words.size());
+      DataOutputStream data = new DataOutputStream(bytes);
+      data.writeUTF(rack);
+      data.writeInt(words.size());
+      for(int i = 0; i < words.size(); i++){
+         data.writeUTF(words.getWord(i));
+         data.writeShort(words.getScore(i));
+      }
+      return bytes.toByteArray();
+   }
+   
+   /**
+      Append a string to a JSON document as a quoted JSON string.
+      @param json the document
+      @param s the string
+   */
+   private static void appendJsonString(StringBuilder json, String s){
+      json.append('"');
       for(int i = 0; i < s.length(); i++){
          char ch = s.charAt(i);
-         if(Character.isLetter(ch)){
-            validStr += ch;
+         if(ch == '"' || ch == '\\'){ json.append('\\').append(ch); }
+         else if(ch < ' '){ json.append(String.format("\\u%04x", (int) ch)); }
+         else{ json.append(ch); }
+      }
+      json.append('"');
+   }
+   
+   /**
+      Replace the rack caches of all dictionaries with empty ones.
+      @param size the number of distinct racks to keep results for, per dictionary; 0 turns the cache off
+   */
+   static void setCacheSize(int size){
+      synchronized(rackCaches){
+         cacheSize = size;
+         rackCaches.clear();
+      }
+   }
+   
+   /**
+      Get the rack cache of a dictionary, creating an empty one the first time. Each dictionary has its
+      own, so two dictionaries at the same version never see each other's results, and a cache is
+      dropped along with its dictionary.
+      @param dic the dictionary
+      @return the cache of dic's results
+   */
+   private static LruCache<String, RankedWords> rackCacheOf(AnagramDictionary dic){
+      synchronized(rackCaches){
+         LruCache<String, RankedWords> cache = rackCaches.get(dic);
+         if(cache == null){
+            cache = new LruCache<String, RankedWords>(cacheSize);
+            rackCaches.put(dic, cache);
          }
+         return cache;
       }
-      return validStr;
-   }  
+   }
+   
+   /**
+      Load the dictionary for fileName. If a snapshot of the word list (fileName + ".snapshot") exists and
+      is at least as new as the word list, it is memory-mapped instead of re-parsing the word list.
+      Otherwise the word list is parsed and a snapshot is written for the next run, if possible.
+      @param fileName the name of the word list
+      @return the loaded dictionary
+      @throws FileNotFoundException if neither the word list nor its snapshot exists
+      @throws IllegalDictionaryException if the word list has any duplicate words
+   */
+   private static AnagramDictionary loadDictionary(String fileName) throws FileNotFoundException, IllegalDictionaryException {
+      File wordList = new File(fileName);
+      File snapshotFile = new File(fileName + SNAPSHOT_SUFFIX);
+      
+      if(snapshotFile.isFile() && (!wordList.exists() || snapshotFile.lastModified() >= wordList.lastModified())){
+         try{
+            return AnagramDictionary.openSnapshot(snapshotFile.getPath());
+         }
+         catch(IOException e){
+            //unreadable or stale format, fall back to the word list and rewrite it below
+         }
+      }
+      
+      AnagramDictionary dic = new AnagramDictionary(fileName);
+      try{
+         dic.writeSnapshot(snapshotFile.getPath());
+      }
+      catch(IOException e){
+         snapshotFile.delete();//only a cache, so a read-only directory is not an error
+      }
+      return dic;
+   }
    
    /**
-      Get the score of a string.
-      @param s the string to get the score
-      @return the score of the string s 
+      Print the words for one rack: all of them, or only the best topCount if that is positive.
+      @param out the writer to print to
+      @param dic the dictionary to search
+      @param rack the rack to solve, as typed
    */
-   private static int getScore(String s){
-      ScoreTable st = new ScoreTable(s);
-      return st.getScore();
+   static void printAnswer(PrintWriter out, AnagramDictionary dic, String rack){
+      RankedWords words = answer(dic, rack);
+      if(topCount > 0){ printTopScore(out, rack, words); }
+      else{ printSortedScore(out, rack, words); }
    }
+   
+   /**
+      Find the words for one rack: all of them, or only the best topCount if that is positive.
+      The query is counted in QueryMetrics if that is enabled, and recorded as a RackQueryEvent if a
+      flight recording wants one.
+      @param dic the dictionary to search
+      @param rack the rack to solve, as typed
+      @return the words, best first
+   */
+   private static RankedWords answer(AnagramDictionary dic, String rack){
+      if(!QueryMetrics.isEnabled() && !EVENT_SWITCH.isEnabled()){ return findWords(dic, rack, null); }//nothing is measured
       
+      RackQueryEvent query = new RackQueryEvent();
+      long start = System.nanoTime();
+      query.begin();
+      query.rack = rack;
+      RankedWords words = findWords(dic, rack, query);
+      query.words = words.size();
+      query.end();
+      if(query.shouldCommit()){ query.commit(); }
+      if(QueryMetrics.isEnabled()){ QueryMetrics.record(query, System.nanoTime() - start); }
+      return words;
+   }
+   
    /**
-      Print out all the words and corresponding scores ordered by the scores.
-      @param scoreList the scoreList to be printed
+      Find the words for one rack: all of them, or only the best topCount if that is positive.
+      @param dic the dictionary to search
+      @param rack the rack to solve, as typed
+      @param query the counts of the query to fill in, or null if it isn't measured
+      @return the words, best first
    */
-   private static void printSortedScore(TreeMap<String, Integer> scoreList){
-      ArrayList<Map.Entry<String, Integer>> sortList = new ArrayList<Map.Entry<String, Integer>>(scoreList.entrySet());
-      Collections.sort(sortList, new scoreComparator());
+   private static RankedWords findWords(AnagramDictionary dic, String rack, RackQueryEvent query){
+      if(topCount <= 0){ return getSubsets(dic, rack, query); }
+      ArrayList<ScoredWord> topList = dic.getTopWordsFrom(validInput(rack), topCount);
+      return new RankedWords(topList, true);//best first, and alphabetical among equal scores
+   }
+   
+   /**
+      Get the words that can be made from a rack and their scores.
+      The dictionary's word graph is walked with the rack's letter counts, so only words that
+      can actually be made are visited, rather than looking up every subset of the rack.
+      The scores come precomputed from the dictionary. On a batch worker thread, the words come from
+      the thread's SubRackMemo instead.
+      The words are then ranked by a counting sort over their scores (see RankedWords).
+      Results are cached per dictionary by the rack's tiles in sorted order and the dictionary's version, so a rack 
+      that was seen recently (with its tiles in any order) is not searched again unless the dictionary
+      has been updated since.
+      @param dic to use getScoredWordsFrom() to get all words
+      @param rack Input string rack
+      @param query the counts of the query to fill in, or null if it isn't measured
+      @return the words with their scores, best first
+   */
+   private static RankedWords getSubsets(AnagramDictionary dic, String rack, RackQueryEvent query){
+      String tiles = validInput(rack);
+      char[] sortedTiles = tiles.toCharArray();
+      Arrays.sort(sortedTiles);
+      String key = dic.getVersion() + ":" + new String(sortedTiles);//results from an older word list don't count
+      LruCache<String, RankedWords> rackCache = rackCacheOf(dic);
+      
+      RankedWords cached = rackCache.get(key);
+      if(cached != null){
+         if(query != null){ query.cached = true; }
+         return cached;
+      }
       
-      System.out.println("We can make " + sortList.size() + " words from \"" + rack + "\"");
+      SubRackMemo memo = batchMemo.get();
+      ArrayList<ScoredWord> words;
+      if(memo == null){ words = dic.getScoredWordsFrom(tiles); }
+      else if(query == null){ words = memo.getScoredWordsFrom(tiles); }
+      else{//the memo belongs to this thread, so its counts only change by this query
+         long subsets = memo.subsets();
+         long pruned = memo.pruned();
+         long hits = memo.hits();
+         long probes = memo.misses();
+         long scored = memo.scored();
+         words = memo.getScoredWordsFrom(tiles);
+         query.subsets = memo.subsets() - subsets;
+         query.pruned = memo.pruned() - pruned;
+         query.hits = memo.hits() - hits;
+         query.probes = memo.misses() - probes;
+         query.wordsScored = memo.scored() - scored;
+      }
+      
+      long sortStart = (query != null) ? System.nanoTime() : 0;
+      RankedWords result = new RankedWords(words, memo == null);//the word graph gives alphabetical order
+      if(query != null){ query.sortNanos = System.nanoTime() - sortStart; }
+      rackCache.put(key, result);
+      return result;
+   }
+   
+   /**
+      Get the string only contains letters and blank tiles. Every blank is written as Rack.BLANK.
+      @param s the string to process
+      @return a string only contains letters and blank tiles.
+   */
+   private static String validInput(String s){
+      StringBuilder validStr = new StringBuilder();
+      
+      for(int i = 0; i < s.length(); i++){
+         char ch = s.charAt(i);
+         if(Character.isLetter(ch)){
+            validStr.append(ch);
+         }
+         else if(Rack.isBlank(ch)){
+            validStr.append(Rack.BLANK);
+         }
+      }
+      return validStr.toString();
+   }  
+   
+   /**
+      Print out all the words and corresponding scores ordered by the scores.
+      @param out the writer to print to
+      @param rack the rack the words were made from, as typed
+      @param words the words to be printed, best first
+   */
+   private static void printSortedScore(PrintWriter out, String rack, RankedWords words){
+      out.println("We can make " + words.size() + " words from \"" + rack + "\"");
       
-      if (sortList.size() > 0) {
-         System.out.println("All of the words with their scores (sorted by score):");
-         for (int i = 0; i < sortList.size(); i++) {
-            System.out.println(sortList.get(i).getValue() + ": " + sortList.get(i).getKey());
+      if (words.size() > 0) {
+         out.println("All of the words with their scores (sorted by score):");
+         for (int i = 0; i < words.size(); i++) {
+            out.print(words.getScore(i));
+            out.print(": ");
+            out.println(words.getWord(i));
          }
       }
    }
    
    /**
-     Implement Java Comparator interface to sort the list by the descending value
-     of score. If scores are the same, then it will be alphabetically ordered.
+      Print out the best words and corresponding scores ordered by the scores.
+      @param out the writer to print to
+      @param rack the rack the words were made from, as typed
+      @param topList the best words, best first
    */
-   static class scoreComparator implements Comparator<Map.Entry<String, Integer>>{
-      public int compare(Map.Entry<String, Integer> a, Map.Entry<String, Integer> b){
-         return b.getValue() - a.getValue();
+   private static void printTopScore(PrintWriter out, String rack, RankedWords topList){
+      out.println("The best " + topList.size() + " words from \"" + rack + "\" (sorted by score):");
+      for (int i = 0; i < topList.size(); i++) {
+         out.print(topList.getScore(i));
+         out.print(": ");
+         out.println(topList.getWord(i));
       }
    }
 }
\ No newline at end of file
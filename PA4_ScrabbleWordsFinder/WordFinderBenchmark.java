@@ -0,0 +1,412 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+   Benchmarks for each stage of the word-finder pipeline: building an AnagramDictionary, getAnagramsOf,
+   Rack.getAllSubsets, ScoreTable.getScore and a full WordFinder query, for MoveGenerator on
+   mid-game boards, for pattern queries, and for answering a log of game racks with and without SubRackMemo.
+   Every benchmark runs a few warm-up rounds and then timed rounds, and reports throughput, average time
+   and allocation per operation (from the JVM's per-thread allocation counter), plus the collector time
+   spent while it was measured. Racks come from a seeded generator, so every run measures the same work.
+
+   Usage: java WordFinderBenchmark [dictionaryFile] [-only stage] [-time ms]
+   where stage is one of build, anagrams, subsets, score, query, moves, patterns, batch, and ms is the length of each round.
+ */
+public class WordFinderBenchmark {
+   private static final String DEFAULT_FILE_NAME = "sowpods.txt";
+   private static final String ONLY_FLAG = "-only";
+   private static final String TIME_FLAG = "-time";
+   private static final String[] STAGES = {"build", "anagrams", "subsets", "score", "query", "moves", "patterns", "batch"};
+
+   private static final int[] RACK_LENGTHS = {7, 10, 15};
+   private static final int[] BLANK_COUNTS = {0, 1, 2};
+   private static final int[] DICTIONARY_PERCENTS = {25, 50, 100};
+   private static final int NUM_RACKS = 256;  // racks per benchmark, cycled through
+   private static final long SEED = 42;
+   private static final int[] MIDGAME_TURNS = {6, 10, 14};  // best moves played to reach each position
+   private static final int NUM_LOGGED_RACKS = 16384;  // racks in the game log answered as one batch
+   private static final String[] PATTERNS = {"c?t*", "??x??", "*ing", "q*u*z*", "s?????????????s"};
+
+   private static final int WARMUP_ROUNDS = 3;
+   private static final int MEASURED_ROUNDS = 5;
+   private static final long DEFAULT_ROUND_MILLIS = 1000;
+
+   private static long roundMillis = DEFAULT_ROUND_MILLIS;
+   private static long sink;  // every result is folded in here so the JIT can't drop the work
+
+   /**
+      One benchmarked operation. Each call does one unit of work and returns something derived from
+      its result.
+    */
+   private interface Operation {
+      long run(int i) throws Exception;
+   }
+
+   /**
+      Usage: java WordFinderBenchmark [dictionaryFile] [-only stage] [-time ms]
+    */
+   public static void main(String[] args) throws Exception {
+      String fileName = DEFAULT_FILE_NAME;
+      String only = null;
+
+      for(int i = 0; i < args.length; i++){
+         if(args[i].equals(ONLY_FLAG) && i + 1 < args.length){ only = args[++i]; }
+         else if(args[i].equals(TIME_FLAG) && i + 1 < args.length){ roundMillis = Long.parseLong(args[++i]); }
+         else{ fileName = args[i]; }
+      }
+      if(only != null && !Arrays.asList(STAGES).contains(only)){
+         System.out.println("ERROR: unknown stage \"" + only + "\", expected one of " + Arrays.toString(STAGES));
+         return;
+      }
+
+      List<String> words = readWords(fileName);
+      System.out.printf("%-40s %14s %14s %14s %10s%n", "Benchmark", "ops/s", "us/op", "bytes/op", "gc ms");
+
+      if(only == null || only.equals("build")){ benchmarkBuild(words); }
+
+      WordFinder.setCacheSize(0);//measure the search, not the cache
+      AnagramDictionary dic = new AnagramDictionary(fileName);
+      if(only == null || only.equals("anagrams")){ benchmarkAnagrams(dic, words); }
+      if(only == null || only.equals("subsets")){ benchmarkSubsets(); }
+      if(only == null || only.equals("score")){ benchmarkScore(words); }
+      if(only == null || only.equals("query")){ benchmarkQuery(dic); }
+      if(only == null || only.equals("moves")){ benchmarkMoves(dic); }
+      if(only == null || only.equals("patterns")){ benchmarkPatterns(dic); }
+      if(only == null || only.equals("batch")){ benchmarkBatch(dic); }
+
+      if(sink == 42){ System.out.println(); }//keeps sink alive
+   }
+
+   /**
+      Build a dictionary from a sample of the word list, for each dictionary size.
+      @param words the whole word list
+    */
+   private static void benchmarkBuild(List<String> words) throws IOException {
+      for(int percent : DICTIONARY_PERCENTS){
+         File file = writeSample(words, percent);
+         try{
+            measure("build dict=" + percent + "%", i -> new AnagramDictionary(file.getPath()).getAnagramsOf("a").size());
+         }
+         finally{
+            file.delete();
+         }
+      }
+   }
+
+   /**
+      Look up the anagrams of dictionary words, which always exist, and of random racks, which mostly don't.
+      @param dic the dictionary to search
+      @param words the whole word list
+    */
+   private static void benchmarkAnagrams(AnagramDictionary dic, List<String> words){
+      Random random = new Random(SEED);
+      String[] present = new String[NUM_RACKS];
+      for(int i = 0; i < present.length; i++){ present[i] = words.get(random.nextInt(words.size())); }
+      measure("getAnagramsOf word", i -> dic.getAnagramsOf(present[i % present.length]).size());
+
+      for(int length : RACK_LENGTHS){
+         String[] racks = generateRacks(length, 0);
+         measure("getAnagramsOf rack=" + length, i -> dic.getAnagramsOf(racks[i % racks.length]).size());
+      }
+   }
+
+   /**
+      Enumerate all subsets of random racks, for each rack length and blank count.
+    */
+   private static void benchmarkSubsets(){
+      for(int length : RACK_LENGTHS){
+         for(int blanks : BLANK_COUNTS){
+            String[] racks = generateRacks(length, blanks);
+            measure("getAllSubsets rack=" + length + " blanks=" + blanks,
+                    i -> new Rack(racks[i % racks.length]).getAllSubsets().size());
+         }
+      }
+   }
+
+   /**
+      Score dictionary words.
+      @param words the whole word list
+    */
+   private static void benchmarkScore(List<String> words){
+      measure("getScore", i -> new ScoreTable(words.get(i % words.size())).getScore());
+   }
+
+   /**
+      Answer a rack exactly as WordFinder does, including sorting and formatting, for each rack length
+      and blank count.
+      @param dic the dictionary to search
+    */
+   private static void benchmarkQuery(AnagramDictionary dic){
+      for(int length : RACK_LENGTHS){
+         for(int blanks : BLANK_COUNTS){
+            String[] racks = generateRacks(length, blanks);
+            measure("query rack=" + length + " blanks=" + blanks, i -> WordFinder.solve(dic, racks[i % racks.length]).length());
+         }
+      }
+   }
+
+   /**
+      Generate all the moves of random racks on mid-game boards. Each board is reached by playing the
+      best move of a seeded sequence of racks, so the positions are the same on every run.
+      @param dic the dictionary of legal words
+    */
+   private static void benchmarkMoves(AnagramDictionary dic){
+      MoveGenerator generator = new MoveGenerator(dic);
+      String[] openingRacks = generateRacks(7, 0);
+
+      for(int turns : MIDGAME_TURNS){
+         Board board = new Board();
+         for(int t = 0; t < turns; t++){
+            Move best = generator.bestMove(board, openingRacks[t]);
+            if(best != null){ board.play(best); }
+         }
+         for(int blanks = 0; blanks <= 1; blanks++){
+            String[] racks = generateRacks(7, blanks);
+            measure("moves tiles=" + board.numTiles() + " blanks=" + blanks,
+                    i -> generator.generate(board, racks[i % racks.length]).size());
+         }
+      }
+   }
+
+   /**
+      Answer crossword-style pattern queries, alone and combined with random racks.
+      @param dic the dictionary to search
+    */
+   private static void benchmarkPatterns(AnagramDictionary dic){
+      dic.getMatches("");//builds the pattern index outside the measurement
+      for(String pattern : PATTERNS){
+         measure("getMatches " + pattern, i -> dic.getMatches(pattern).size());
+         String[] racks = generateRacks(7, 0);
+         measure("getMatches " + pattern + " rack=7", i -> dic.getMatches(pattern, 0, Integer.MAX_VALUE, racks[i % racks.length]).size());
+      }
+   }
+
+   /**
+      Answer every rack of a game log as one batch: by looking up every subset of each rack, by walking
+      the word graph, and through a SubRackMemo that starts empty for each batch.
+      @param dic the dictionary to search
+    */
+   private static void benchmarkBatch(AnagramDictionary dic){
+      String[] log = generateRackLog(NUM_LOGGED_RACKS);
+      measure("batch subset lookups", i -> {
+         long found = 0;
+         for(String rack : log){
+            ArrayList<ScoredWord> words = new ArrayList<ScoredWord>();
+            new Rack(rack).forEachSubset((subset, length) -> {
+               for(String word : dic.getAnagramsOf(subset, length)){ words.add(new ScoredWord(word, ScoreTable.scoreOf(word))); }
+            });
+            found += words.size();
+         }
+         return found;
+      });
+      measure("batch word graph", i -> {
+         long found = 0;
+         for(String rack : log){ found += dic.getScoredWordsFrom(rack).size(); }
+         return found;
+      });
+      measure("batch memo", i -> {
+         SubRackMemo memo = new SubRackMemo(dic);
+         long found = 0;
+         for(String rack : log){ found += memo.getScoredWordsFrom(rack).size(); }
+         return found;
+      });
+   }
+
+   /**
+      Run an operation for the warm-up and measured rounds, and print its results.
+      @param name the name of the benchmark
+      @param op the operation to measure
+    */
+   private static void measure(String name, Operation op){
+      AllocationCounter allocation = new AllocationCounter();
+      long ops = 0;
+      long nanos = 0;
+      long bytes = 0;
+      long gcMillis = 0;
+
+      try{
+         for(int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++){
+            long deadline = System.nanoTime() + roundMillis * 1000000L;
+            long roundOps = 0;
+            long gcBefore = gcMillis();
+            long bytesBefore = allocation.get();
+            long start = System.nanoTime();
+            long now;
+
+            do{
+               sink += op.run((int) roundOps++);
+               now = System.nanoTime();
+            } while(now < deadline);
+
+            if(round >= WARMUP_ROUNDS){
+               ops += roundOps;
+               nanos += now - start;
+               bytes += allocation.get() - bytesBefore;
+               gcMillis += gcMillis() - gcBefore;
+            }
+         }
+      }
+      catch(Exception e){
+         System.out.printf("%-40s failed: %s%n", name, e);
+         return;
+      }
+
+      String bytesPerOp = allocation.isSupported() ? String.format("%.1f", (double) bytes / ops) : "n/a";
+      System.out.printf("%-40s %14.1f %14.3f %14s %10d%n",
+                        name, ops * 1e9 / nanos, nanos / 1e3 / ops, bytesPerOp, gcMillis);
+   }
+
+   /**
+      Get the total time all collectors have spent so far.
+      @return the collection time in milliseconds
+    */
+   private static long gcMillis(){
+      long total = 0;
+      for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()){
+         total += Math.max(0, gc.getCollectionTime());
+      }
+      return total;
+   }
+
+   /**
+      Generate racks by drawing tiles without replacement from a seeded, shuffled Scrabble bag,
+      so that letter frequencies are realistic and every run gets the same racks.
+      @param length the number of tiles in each rack
+      @param blanks how many of those tiles are blanks
+      @return NUM_RACKS racks
+    */
+   static String[] generateRacks(int length, int blanks){
+      // number of tiles of each letter in a standard English set, 'a' to 'z'
+      final int[] tileCounts = {9, 2, 2, 4, 12, 2, 3, 2, 9, 1, 1, 4, 2, 6, 8, 2, 1, 6, 4, 6, 4, 2, 2, 1, 2, 1};
+      StringBuilder bag = new StringBuilder();
+      for(int letter = 0; letter < tileCounts.length; letter++){
+         for(int n = 0; n < tileCounts[letter]; n++){ bag.append((char) ('a' + letter)); }
+      }
+
+      Random random = new Random(SEED + 31 * length + blanks);
+      String[] racks = new String[NUM_RACKS];
+      char[] tiles = bag.toString().toCharArray();
+
+      for(int r = 0; r < racks.length; r++){
+         char[] rack = new char[length];
+         for(int i = 0; i < length - blanks; i++){//partial Fisher-Yates shuffle
+            int j = i + random.nextInt(tiles.length - i);
+            char tmp = tiles[i];
+            tiles[i] = tiles[j];
+            tiles[j] = tmp;
+            rack[i] = tiles[i];
+         }
+         for(int i = length - blanks; i < length; i++){ rack[i] = Rack.BLANK; }
+         racks[r] = new String(rack);
+      }
+      return racks;
+   }
+
+   /**
+      Generate the racks of a seeded sequence of games, the way a tournament log records them: each
+      turn plays some of the rack's tiles and draws new ones from the bag, so consecutive racks share
+      the tiles that were kept. A new game starts when the bag runs out. There are no blanks.
+      @param numRacks the number of racks wanted
+      @return the racks, in the order they were played
+    */
+   static String[] generateRackLog(int numRacks){
+      final int[] tileCounts = {9, 2, 2, 4, 12, 2, 3, 2, 9, 1, 1, 4, 2, 6, 8, 2, 1, 6, 4, 6, 4, 2, 2, 1, 2, 1};
+      final int rackSize = 7;
+      Random random = new Random(SEED);
+      String[] racks = new String[numRacks];
+      ArrayList<Character> bag = new ArrayList<Character>();
+      StringBuilder rack = new StringBuilder();
+
+      for(int r = 0; r < racks.length; r++){
+         if(bag.isEmpty()){//new game
+            for(int letter = 0; letter < tileCounts.length; letter++){
+               for(int n = 0; n < tileCounts[letter]; n++){ bag.add((char) ('a' + letter)); }
+            }
+            rack.setLength(0);
+         }
+         while(rack.length() < rackSize && !bag.isEmpty()){
+            rack.append(bag.remove(random.nextInt(bag.size())));
+         }
+         racks[r] = rack.toString();
+         for(int played = 1 + random.nextInt(rack.length()); played > 0; played--){
+            rack.deleteCharAt(random.nextInt(rack.length()));
+         }
+      }
+      return racks;
+   }
+
+   /**
+      Read all the words of a word list.
+      @param fileName the name of the word list
+      @return the words, in file order
+    */
+   private static List<String> readWords(String fileName) throws IOException {
+      List<String> words = new ArrayList<String>();
+      for(String line : Files.readAllLines(new File(fileName).toPath(), Charset.defaultCharset())){
+         for(String word : line.trim().split("\\s+")){
+            if(!word.isEmpty()){ words.add(word); }
+         }
+      }
+      return words;
+   }
+
+   /**
+      Write a seeded random sample of the word list to a temporary file.
+      @param words the whole word list
+      @param percent the percentage of words to keep
+      @return the temporary file, which the caller should delete
+    */
+   private static File writeSample(List<String> words, int percent) throws IOException {
+      Random random = new Random(SEED);
+      List<String> sample = new ArrayList<String>();
+      for(String word : words){
+         if(random.nextInt(100) < percent){ sample.add(word); }
+      }
+      File file = File.createTempFile("words", ".txt");
+      file.deleteOnExit();
+      Files.write(file.toPath(), sample, Charset.defaultCharset());
+      return file;
+   }
+
+   /**
+      Reads the number of bytes the current thread has allocated, if the JVM can tell.
+    */
+   private static class AllocationCounter {
+      private com.sun.management.ThreadMXBean threads;
+
+      /**
+         Create a counter, enabling the JVM's allocation counter if it is available.
+       */
+      public AllocationCounter(){
+         if(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean){
+            threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            if(threads.isThreadAllocatedMemorySupported()){ threads.setThreadAllocatedMemoryEnabled(true); }
+            else{ threads = null; }
+         }
+      }
+
+      /**
+         Whether allocation can be measured on this JVM.
+         @return whether get returns meaningful values
+       */
+      public boolean isSupported(){
+         return threads != null;
+      }
+
+      /**
+         Get the number of bytes the current thread has allocated so far.
+         @return the allocated bytes, or 0 if not supported
+       */
+      public long get(){
+         return (threads == null) ? 0 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+   }
+}
@@ -0,0 +1,324 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+   Answers rack queries over local TCP connections, sharing one loaded dictionary between all clients.
+   The protocol is line based, in the platform charset:
+   - the client sends one rack per line (ended by "\n", "\r" or "\r\n");
+   - for each rack the server sends the same lines WordFinder prints for it interactively, then one empty line;
+   - a line holding only "." (or the end of input) closes the connection, once the racks before it are answered.
+   Clients may pipeline: they can send any number of racks without waiting, and the answers come back
+   in the same order. Each answer is sent as soon as it is found; answers that are found while earlier
+   ones are still waiting to be sent go out together in one write.
+   All connections are read and written by one thread, through a Selector, so an idle client costs a
+   socket and a few small buffers rather than a thread, and thousands of clients can be connected at
+   once (as many as the process may open files). The racks are answered by a pool of one worker thread
+   per core. A connection is not read while it has MAX_QUEUED_RACKS racks waiting or MAX_QUEUED_BYTES of
+   answers unsent, so a client that sends much faster than it reads can't fill the server's memory.
+ */
+public class WordFinderServer {
+   /**
+      Representation invariant:
+      dic is the shared, read-only dictionary. Every open connection is registered with selector, with its
+      Connection as the key's attachment; only the thread running serve reads, writes, registers or closes
+      connections. A Connection is in updated when a worker has changed it since its interest ops were set.
+   */
+   public static final int MAX_QUEUED_RACKS = 256;  // racks read from one connection and not yet answered
+   public static final int MAX_QUEUED_BYTES = 1 << 20;  // answers to one connection found and not yet sent
+   public static final int BACKLOG = 1024;  // connections the operating system queues until they are accepted
+
+   private static final String QUIT = ".";
+   private static final int BUFFER_SIZE = 1 << 12;  // per connection, for reading; racks are short
+   private static final int RACKS_PER_TURN = 16;  // racks a worker answers for one connection before others get a turn
+
+   private AnagramDictionary dic;
+   private int port;
+   private Charset charset = Charset.defaultCharset();
+   private ExecutorService workers;
+   private ConcurrentLinkedQueue<Connection> updated = new ConcurrentLinkedQueue<Connection>();
+   private volatile Selector selector;
+   private volatile boolean stopped;
+
+   /**
+      Create a server for the dictionary. Nothing is opened until serve is called.
+      @param dic the dictionary to search
+      @param port the local port to listen on; 0 picks a free port
+   */
+   public WordFinderServer(AnagramDictionary dic, int port){
+      this.dic = dic;
+      this.port = port;
+      this.workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+   }
+
+   /**
+      Listen on the loopback interface and serve connections until stop is called, the calling thread is
+      interrupted, or accepting a connection fails. Every connection is then closed, answered or not.
+      A server serves only once.
+      @throws IOException if the port cannot be opened, or a connection cannot be accepted
+   */
+   public void serve() throws IOException {
+      try(Selector sel = Selector.open();
+          ServerSocketChannel server = ServerSocketChannel.open()){
+         selector = sel;
+         try{
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+            server.configureBlocking(false);
+            server.register(sel, SelectionKey.OP_ACCEPT);
+            System.err.println("Listening on " + server.getLocalAddress());
+
+            while(!stopped && !Thread.currentThread().isInterrupted()){//an interrupt also ends select
+               sel.select();
+               Connection conn;
+               while((conn = updated.poll()) != null){ conn.updateInterest(); }
+
+               Iterator<SelectionKey> keys = sel.selectedKeys().iterator();
+               while(keys.hasNext()){
+                  SelectionKey key = keys.next();
+                  keys.remove();
+                  if(!key.isValid()){ continue; }
+                  if(key.isAcceptable()){ accept(server, sel); }
+                  else{ ((Connection) key.attachment()).handle(key); }
+               }
+            }
+         }
+         finally{
+            stopped = true;
+            workers.shutdownNow();
+            for(SelectionKey key : sel.keys()){//closing the selector would only deregister them
+               if(key.attachment() != null){ ((Connection) key.attachment()).close(); }
+            }
+         }
+      }
+   }
+
+   /**
+      Make serve return, closing every connection. May be called from any thread.
+   */
+   public void stop(){
+      stopped = true;
+      Selector sel = selector;
+      if(sel != null){ sel.wakeup(); }
+   }
+
+   /**
+      Accept every connection that is waiting, and start reading from each.
+      @param server the listening channel
+      @param sel the selector to register the connections with
+      @throws IOException if a connection cannot be accepted
+   */
+   private void accept(ServerSocketChannel server, Selector sel) throws IOException {
+      SocketChannel channel;
+      while((channel = server.accept()) != null){
+         channel.configureBlocking(false);
+         Connection conn = new Connection(channel);
+         conn.key = channel.register(sel, SelectionKey.OP_READ, conn);
+      }
+   }
+
+   /**
+      Ask the thread running serve to set a connection's interest ops again, from a worker thread.
+      @param conn the connection whose queues have changed
+   */
+   private void changed(Connection conn){
+      updated.add(conn);
+      Selector sel = selector;
+      if(sel != null){ sel.wakeup(); }
+   }
+
+   /**
+      One client connection: the racks read from it and not yet answered, and the answers not yet sent.
+      The queues and flags are shared by the thread running serve and the workers, which lock the
+      Connection to use them.
+    */
+   private class Connection {
+      /**
+         Representation invariant:
+         racks holds the complete racks read so far and not yet taken by a worker, in the order they were
+         sent; busy is true iff a worker task is answering racks of this connection (there is at most one,
+         so the answers are found in order). output holds the answers found and not yet completely sent,
+         in order; queuedBytes is the number of bytes remaining in them. line holds the start of a rack
+         whose end hasn't been read yet. inputDone is true once "." or the end of input has been read.
+      */
+      private SocketChannel channel;
+      private SelectionKey key;
+      private CharsetDecoder decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+                                                            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+      private ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+      private CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+      private StringBuilder line = new StringBuilder();
+      private boolean skipLF;  // the last char read was '\r', so a '\n' right after it ends no line
+      private boolean inputDone;
+      private boolean closed;
+      private ArrayDeque<String> racks = new ArrayDeque<String>();
+      private boolean busy;
+      private ArrayDeque<ByteBuffer> output = new ArrayDeque<ByteBuffer>();
+      private long queuedBytes;
+
+      /**
+         Create the state of a newly accepted connection.
+         @param channel the connected socket, in non-blocking mode
+       */
+      public Connection(SocketChannel channel){
+         this.channel = channel;
+      }
+
+      /**
+         Read and write what the connection is ready for, and close it if that fails or it is finished.
+         Called only by the thread running serve.
+         @param readyKey the selected key of this connection
+       */
+      public void handle(SelectionKey readyKey){
+         try{
+            if(readyKey.isReadable()){ read(); }
+            if(readyKey.isValid() && readyKey.isWritable()){ write(); }
+            updateInterest();
+         }
+         catch(IOException e){
+            close();//the client went away; nothing to answer
+         }
+      }
+
+      /**
+         Set which operations the selector waits for: reading unless the input is done or too much is
+         queued, and writing while there are answers to send. Close the connection once everything has
+         been answered and sent after the end of its input. Called only by the thread running serve.
+       */
+      public synchronized void updateInterest(){
+         if(closed){ return; }
+         if(inputDone && racks.isEmpty() && !busy && output.isEmpty()){
+            close();
+            return;
+         }
+         int ops = 0;
+         if(!inputDone && racks.size() < MAX_QUEUED_RACKS && queuedBytes < MAX_QUEUED_BYTES){ ops |= SelectionKey.OP_READ; }
+         if(!output.isEmpty()){ ops |= SelectionKey.OP_WRITE; }
+         key.interestOps(ops);
+      }
+
+      /**
+         Read what the client has sent, queue every rack it completes, and start a worker on them if none
+         is running.
+         @throws IOException if the socket cannot be read
+       */
+      private synchronized void read() throws IOException {
+         int n = channel.read(in);
+         boolean endOfInput = n < 0;
+
+         in.flip();
+         CoderResult result;
+         do{
+            result = decoder.decode(in, chars, endOfInput);
+            if(endOfInput && result.isUnderflow()){ result = decoder.flush(chars); }
+            splitLines();
+         } while(result.isOverflow());
+         in.compact();
+
+         if(endOfInput && !inputDone){
+            if(line.length() > 0){ racks.add(line.toString()); }//an unfinished last line is still a rack
+            inputDone = true;
+         }
+         if(!racks.isEmpty() && !busy){
+            busy = true;
+            workers.execute(this::answerSome);
+         }
+      }
+
+      /**
+         Drain the decoded chars into line, queueing each rack that ends in them, until "." is read.
+       */
+      private void splitLines(){
+         chars.flip();
+         while(chars.hasRemaining() && !inputDone){
+            char ch = chars.get();
+            if(ch == '\n' && skipLF){ skipLF = false; }
+            else if(ch == '\n' || ch == '\r'){
+               skipLF = ch == '\r';
+               String rack = line.toString();
+               line.setLength(0);
+               if(rack.equals(QUIT)){ inputDone = true; }
+               else{ racks.add(rack); }
+            }
+            else{
+               skipLF = false;
+               line.append(ch);
+            }
+         }
+         chars.clear();//anything after "." is ignored
+      }
+
+      /**
+         Send as much of the queued answers as the socket takes now.
+         @throws IOException if the socket cannot be written
+       */
+      private synchronized void write() throws IOException {
+         ByteBuffer[] buffers = output.toArray(new ByteBuffer[output.size()]);
+         queuedBytes -= channel.write(buffers);
+         while(!output.isEmpty() && !output.peek().hasRemaining()){ output.poll(); }
+      }
+
+      /**
+         Answer up to RACKS_PER_TURN of the queued racks on a worker, queueing each answer to be sent as
+         soon as it is found, and then leave the worker to other connections, coming back later if there
+         are more racks.
+       */
+      private void answerSome(){
+         for(int i = 0; i < RACKS_PER_TURN; i++){
+            String rack;
+            synchronized(this){
+               rack = closed ? null : racks.poll();
+               if(rack == null){
+                  busy = false;
+                  changed(this);//the connection may now be finished
+                  return;
+               }
+            }
+            ByteBuffer answer = ByteBuffer.wrap((WordFinder.solve(dic, rack) + System.lineSeparator()).getBytes(charset));
+            synchronized(this){
+               output.add(answer);
+               queuedBytes += answer.remaining();
+            }
+            changed(this);
+         }
+         try{
+            workers.execute(this::answerSome);//still busy; the rest waits behind other connections
+         }
+         catch(RejectedExecutionException e){
+            //the server has stopped, and closes every connection
+         }
+      }
+
+      /**
+         Close the connection, dropping anything not yet answered or sent. Called only by the thread
+         running serve.
+       */
+      private synchronized void close(){
+         closed = true;
+         racks.clear();
+         output.clear();
+         key.cancel();
+         try{
+            channel.close();
+         }
+         catch(IOException e){
+            //already unusable; nothing else to release
+         }
+      }
+   }
+}
@@ -0,0 +1,725 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+   A directed acyclic word graph (DAWG) of a word list: a trie whose equivalent subtrees have been merged,
+   so common suffixes as well as common prefixes are shared.
+   It answers "which words can be made from these tiles" by walking only the branches the tiles allow,
+   instead of looking up every subset of the tiles.
+   The search is case-sensitive, like AnagramDictionary.
+ */
+public class WordGraph {
+   /**
+      Representation invariant:
+      Node 0 is the root. The edges leaving node n are firstEdge[n] .. firstEdge[n+1]-1, sorted by
+      edgeLabel; edge e spells edgeLabel[e] and leads to node edgeTarget[e].
+      terminal[n] is true iff the path from the root to n spells a word.
+      wordsBelow[n] is the number of words that end at or below node n. Words are numbered 0, 1, ...
+      in alphabetical order (their rank); the words below the target of edge e, leaving node n, are
+      numbered from rank(n) + edgeRank[e].
+   */
+   private int[] firstEdge;
+   private char[] edgeLabel;
+   private int[] edgeTarget;
+   private boolean[] terminal;
+   private int[] wordsBelow;
+   private int[] edgeRank;
+   private volatile Bounds bounds;      // computed on first use by topWordsFrom
+
+   /**
+      Build the graph of the given words.
+      @param words  the words; must not contain duplicates
+    */
+   public WordGraph(Collection<String> words){
+      String[] sorted = words.toArray(new String[0]);
+      Arrays.sort(sorted);
+      flatten(new Builder().build(sorted));
+      computeRanks();
+   }
+
+   /**
+      Create a graph from its flattened arrays (see readFrom).
+      @param firstEdge  the first edge of each node, plus the total number of edges
+      @param edgeLabel  the letter of each edge
+      @param edgeTarget  the node each edge leads to
+      @param terminal  whether each node ends a word
+    */
+   private WordGraph(int[] firstEdge, char[] edgeLabel, int[] edgeTarget, boolean[] terminal){
+      this.firstEdge = firstEdge;
+      this.edgeLabel = edgeLabel;
+      this.edgeTarget = edgeTarget;
+      this.terminal = terminal;
+      computeRanks();
+   }
+
+   /**
+      Receives the words found by a search of the graph.
+    */
+   public interface Visitor {
+      /**
+         Called once for each word found.
+         @param path  the letters of the word, in path[0 .. length-1]; only valid during the call
+         @param length  the length of the word
+         @param rank  the number of the word (see rankOf)
+         @param blankValue  the total ScoreTable value of the letters played by blanks
+       */
+      void visit(char[] path, int length, int rank, int blankValue);
+   }
+
+   /**
+      Get every word that can be made from some or all of the tiles of rack, in alphabetical order.
+      Blank tiles (see Rack.isBlank) stand for any letter.
+      E.g. rack = "cmal" gives [al, am, cam, calm, clam, ...].
+      @param rack  the tiles available; each may be used as many times as it occurs in rack
+      @return the words that can be made from rack
+    */
+   public ArrayList<String> wordsFrom(String rack){
+      ArrayList<String> words = new ArrayList<String>();
+      search(rack, (path, length, rank, blankValue) -> words.add(new String(path, 0, length)));
+      return words;
+   }
+
+   /**
+      Visit every word that can be made from some or all of the tiles of rack, in alphabetical order.
+      Blank tiles (see Rack.isBlank) stand for any letter, and are only used for letters the rack has
+      no real tile left for.
+      @param rack  the tiles available; each may be used as many times as it occurs in rack
+      @param visitor  receives each word
+    */
+   public void search(String rack, Visitor visitor){
+      Tiles tiles = new Tiles(rack);
+      collect(0, 0, new char[rack.length()], 0, tiles, tiles.numBlanks, 0, visitor);
+   }
+
+   /**
+      Get the number of a word: its position in the alphabetical order of all the words in the graph.
+      @param word  the word to look up
+      @return the rank of word, or -1 if it is not in the graph
+    */
+   public int rankOf(CharSequence word){
+      int node = 0;
+      int rank = 0;
+      for(int i = 0; i < word.length(); i++){
+         int e = findEdge(node, word.charAt(i));
+         if(e < 0){ return -1; }
+         rank += edgeRank[e];
+         node = edgeTarget[e];
+      }
+      return terminal[node] ? rank : -1;
+   }
+
+   /**
+      Get the number of words in the graph.
+      @return the number of words
+    */
+   public int numWords(){
+      return wordsBelow[0];
+   }
+
+   /**
+      Get the k best-scoring words that can be made from some or all of the tiles of rack, scored with
+      the ScoreTable letter values (a letter played by a blank scores zero).
+      The most valuable tiles are tried first, and branches are abandoned as soon as even the most
+      valuable tiles left in the rack (limited to the letters and the length of the longest word below
+      the branch) can't beat the k-th best word found so far, so the cost depends on k rather than on
+      how many low-scoring words there are.
+      @param rack  the tiles available; each may be used as many times as it occurs in rack
+      @param k  the number of words wanted
+      @return at most k words, best first (see ScoredWord.BEST_FIRST)
+    */
+   public ArrayList<ScoredWord> topWordsFrom(String rack, int k){
+      ArrayList<ScoredWord> words = new ArrayList<ScoredWord>();
+      if(k <= 0){ return words; }
+
+      Tiles tiles = new Tiles(rack);
+      PriorityQueue<ScoredWord> best = new PriorityQueue<ScoredWord>(k, Collections.reverseOrder(ScoredWord.BEST_FIRST));
+      collectTop(0, new char[rack.length()], 0, 0, tiles, tiles.numBlanks, best, k);
+
+      words.addAll(best);
+      Collections.sort(words, ScoredWord.BEST_FIRST);
+      return words;
+   }
+
+   /**
+      Get the number of nodes in the graph.
+      @return the number of nodes
+    */
+   public int numNodes(){
+      return terminal.length;
+   }
+
+   /**
+      Get the node reached by following the edge with a given letter from a node, so callers can walk
+      the graph one letter at a time. Node 0 is the root, where every word starts.
+      @param node  the node
+      @param label  the letter
+      @return the node the edge leads to, or -1 if node has no edge with that letter
+    */
+   public int child(int node, char label){
+      int e = findEdge(node, label);
+      return (e < 0) ? -1 : edgeTarget[e];
+   }
+
+   /**
+      Whether the path from the root to a node spells a word.
+      @param node  the node
+      @return whether node ends a word
+    */
+   public boolean isTerminal(int node){
+      return terminal[node];
+   }
+
+   /**
+      Get the first edge leaving a node. The edges leaving node are firstEdgeOf(node) .. endEdgeOf(node)-1,
+      in alphabetical order of their letters.
+      @param node  the node
+      @return the first edge of node
+    */
+   public int firstEdgeOf(int node){
+      return firstEdge[node];
+   }
+
+   /**
+      Get the edge just past the last edge leaving a node (see firstEdgeOf).
+      @param node  the node
+      @return one past the last edge of node
+    */
+   public int endEdgeOf(int node){
+      return firstEdge[node + 1];
+   }
+
+   /**
+      Get the letter an edge spells.
+      @param edge  the edge
+      @return the letter of edge
+    */
+   public char labelOf(int edge){
+      return edgeLabel[edge];
+   }
+
+   /**
+      Get the node an edge leads to.
+      @param edge  the edge
+      @return the target of edge
+    */
+   public int targetOf(int edge){
+      return edgeTarget[edge];
+   }
+
+   /**
+      Depth-first walk from a node, following only the edges whose letter is still left in the rack,
+      or every edge while a blank is left. A letter is taken from a real tile whenever one is left, since
+      a blank is never worth more, so each word is reached along exactly one path.
+      Edge labels and tiles.unique are both sorted, so the two lists are merged instead of searched.
+      @param node  the current node
+      @param rank  the rank of the first word at or below node
+      @param path  the letters spelled from the root to node, in path[0 .. depth-1]
+      @param depth  the length of the current path
+      @param tiles  the letters of the rack that are still unused
+      @param numBlanks  the number of blanks still unused
+      @param blankValue  the value of the letters on the path that were played by blanks
+      @param visitor  receives the words found
+    */
+   private void collect(int node, int rank, char[] path, int depth, Tiles tiles, int numBlanks, int blankValue,
+                        Visitor visitor){
+      if(terminal[node] && depth > 0){ visitor.visit(path, depth, rank, blankValue); }
+
+      int end = firstEdge[node + 1];
+      int j = 0;
+      for(int e = firstEdge[node]; e < end; e++){
+         char label = edgeLabel[e];
+         while(j < tiles.numUnique && tiles.unique[j] < label){ j++; }
+
+         if(j < tiles.numUnique && tiles.unique[j] == label && tiles.mult[j] > 0){
+            tiles.mult[j]--;
+            path[depth] = label;
+            collect(edgeTarget[e], rank + edgeRank[e], path, depth + 1, tiles, numBlanks, blankValue, visitor);
+            tiles.mult[j]++;
+         }
+         else if(numBlanks > 0){
+            path[depth] = label;
+            collect(edgeTarget[e], rank + edgeRank[e], path, depth + 1, tiles, numBlanks - 1,
+                    blankValue + ScoreTable.getLetterScore(label), visitor);
+         }
+         else if(j == tiles.numUnique){
+            break;//no blanks and no rack letters at or after this label
+         }
+      }
+   }
+
+   /**
+      The same walk as collect, keeping only the k best words in a heap whose head is the worst of them.
+      The most valuable letters of the rack are tried first, so good words are found early and the k-th
+      best score rises quickly; a branch is cut as soon as its bound can't beat the k-th best word.
+      @param node  the current node
+      @param path  the letters spelled from the root to node, in path[0 .. depth-1]
+      @param depth  the length of the current path
+      @param score  the score of the tiles on the current path
+      @param tiles  the letters of the rack that are still unused
+      @param numBlanks  the number of blanks still unused
+      @param best  the best words found so far, worst first
+      @param k  the number of words wanted
+    */
+   private void collectTop(int node, char[] path, int depth, int score, Tiles tiles, int numBlanks,
+                           PriorityQueue<ScoredWord> best, int k){
+      if(terminal[node] && depth > 0 && beatsWorst(path, depth, score, best, k, false)){
+         best.add(new ScoredWord(new String(path, 0, depth), score));
+         if(best.size() > k){ best.poll(); }
+      }
+      Bounds bounds = bounds();
+      if(!beatsWorst(path, depth, score + tiles.bestValue(bounds.maxDepth[node], bounds.below[node]), best, k, true)){
+         return;//nothing below this node can make the top k
+      }
+
+      for(int i = 0; i < tiles.numUnique; i++){
+         int j = tiles.byValue[i];
+         int e = (tiles.mult[j] > 0) ? findEdge(node, tiles.unique[j]) : -1;
+         if(e >= 0){
+            tiles.mult[j]--;
+            path[depth] = edgeLabel[e];
+            collectTop(edgeTarget[e], path, depth + 1, score + tiles.value[j], tiles, numBlanks, best, k);
+            tiles.mult[j]++;
+         }
+      }
+      if(numBlanks > 0){
+         for(int e = firstEdge[node]; e < firstEdge[node + 1]; e++){
+            if(tiles.hasLeft(edgeLabel[e])){ continue; }//already tried with a real tile
+            path[depth] = edgeLabel[e];
+            collectTop(edgeTarget[e], path, depth + 1, score, tiles, numBlanks - 1, best, k);
+         }
+      }
+   }
+
+   /**
+      Whether a word (or, if below is true, some word starting with the given path) scoring score
+      could still make the top k, i.e. would come before the worst of the k best words found so far.
+      Ties go to the alphabetically smaller word, as in ScoredWord.BEST_FIRST.
+      @param path  the letters of the word or prefix
+      @param depth  the length of the word or prefix
+      @param score  the score of the word, or an upper bound on the words below the prefix
+      @param best  the best words found so far, worst first
+      @param k  the number of words wanted
+      @param below  whether path is a prefix of the candidate words rather than the word itself
+      @return whether the candidate could make the top k
+    */
+   private static boolean beatsWorst(char[] path, int depth, int score, PriorityQueue<ScoredWord> best, int k,
+                                     boolean below){
+      if(best.size() < k){ return true; }
+      ScoredWord worst = best.peek();
+      if(score != worst.getScore()){ return score > worst.getScore(); }
+
+      String word = worst.getWord();
+      int n = Math.min(depth, word.length());
+      for(int i = 0; i < n; i++){
+         if(path[i] != word.charAt(i)){ return path[i] < word.charAt(i); }
+      }
+      return below ? depth <= word.length() : depth < word.length();
+   }
+
+   /**
+      Find the edge with a given letter leaving a node.
+      @param node  the node
+      @param label  the letter
+      @return the edge, or -1 if node has no edge with that letter
+    */
+   private int findEdge(int node, char label){
+      int low = firstEdge[node];
+      int high = firstEdge[node + 1] - 1;
+      while(low <= high){
+         int mid = (low + high) >>> 1;
+         if(edgeLabel[mid] < label){ low = mid + 1; }
+         else if(edgeLabel[mid] > label){ high = mid - 1; }
+         else{ return mid; }
+      }
+      return -1;
+   }
+
+   /**
+      Count the words below every node and number the edges, so words can be ranked while walking.
+    */
+   private void computeRanks(){
+      wordsBelow = new int[terminal.length];
+      edgeRank = new int[edgeLabel.length];
+      Arrays.fill(wordsBelow, -1);
+      for(int n = 0; n < terminal.length; n++){ countWords(n); }
+   }
+
+   /**
+      Fill in wordsBelow[node] and the edgeRank of its edges (and of everything below it) if they are
+      not known yet.
+      @param node  the node
+      @return wordsBelow[node]
+    */
+   private int countWords(int node){
+      if(wordsBelow[node] < 0){
+         int count = terminal[node] ? 1 : 0;
+         for(int e = firstEdge[node]; e < firstEdge[node + 1]; e++){
+            edgeRank[e] = count;
+            count += countWords(edgeTarget[e]);
+         }
+         wordsBelow[node] = count;
+      }
+      return wordsBelow[node];
+   }
+
+   /**
+      Get the search bounds of every node, computing them on first use.
+      Threads that get here first at the same time may each compute them; each publishes a complete
+      Bounds, so no thread ever sees a partly filled one.
+      @return the bounds
+    */
+   private Bounds bounds(){
+      Bounds result = bounds;
+      if(result == null){
+         result = new Bounds();
+         bounds = result;
+      }
+      return result;
+   }
+
+   /**
+      The longest path below each node and the letters on those paths, which bound how much any word
+      below a node can score. Filled in completely by the constructor and never modified afterwards.
+    */
+   private class Bounds {
+      /**
+         Representation invariant:
+         maxDepth[n] is the number of letters in the longest word ending below node n, and bit i of
+         below[n] is set iff letter 'a' + i occurs on some path below n (every bit, if a letter outside
+         'a'-'z' does).
+      */
+      private final int[] maxDepth;
+      private final int[] below;
+
+      /**
+         Compute the bounds of every node of the graph.
+       */
+      public Bounds(){
+         maxDepth = new int[terminal.length];
+         below = new int[terminal.length];
+         Arrays.fill(maxDepth, -1);
+         for(int n = 0; n < maxDepth.length; n++){ compute(n); }
+      }
+
+      /**
+         Fill in maxDepth[node] and below[node] (and those of everything below it) if they are not
+         known yet.
+         @param node  the node
+         @return maxDepth[node]
+       */
+      private int compute(int node){
+         if(maxDepth[node] < 0){
+            int depth = 0;
+            int letters = 0;
+            for(int e = firstEdge[node]; e < firstEdge[node + 1]; e++){
+               depth = Math.max(depth, 1 + compute(edgeTarget[e]));
+               letters |= below[edgeTarget[e]] | letterBit(edgeLabel[e]);
+            }
+            maxDepth[node] = depth;
+            below[node] = letters;
+         }
+         return maxDepth[node];
+      }
+   }
+
+   /**
+      Get the bit of a letter in a below mask.
+      @param c  the letter
+      @return the bit of c, or all bits if c is not 'a'-'z'
+    */
+   private static int letterBit(char c){
+      return (c >= 'a' && c <= 'z') ? 1 << (c - 'a') : -1;
+   }
+
+   /**
+      The tiles of a rack, as the sorted distinct letters with their multiplicities, and the blanks.
+    */
+   private static class Tiles {
+      private char[] unique;
+      private int[] mult;
+      private int[] value;     // ScoreTable value of each distinct letter
+      private int[] byValue;   // indexes of the distinct letters, most valuable first
+      private int numUnique;
+      private int numBlanks;
+
+      /**
+         Split a rack into its distinct letters and its blanks.
+         @param rack  the tiles of the rack
+       */
+      public Tiles(String rack){
+         char[] letters = new char[rack.length()];
+         int numLetters = 0;
+         for(int i = 0; i < rack.length(); i++){
+            if(Rack.isBlank(rack.charAt(i))){ numBlanks++; }
+            else{ letters[numLetters++] = rack.charAt(i); }
+         }
+         Arrays.sort(letters, 0, numLetters);
+
+         unique = new char[numLetters];
+         mult = new int[numLetters];
+         for(int i = 0; i < numLetters; i++){
+            if(numUnique > 0 && unique[numUnique - 1] == letters[i]){ mult[numUnique - 1]++; }
+            else{
+               unique[numUnique] = letters[i];
+               mult[numUnique++] = 1;
+            }
+         }
+
+         value = new int[numUnique];
+         Integer[] order = new Integer[numUnique];
+         for(int i = 0; i < numUnique; i++){
+            value[i] = ScoreTable.getLetterScore(unique[i]);
+            order[i] = i;
+         }
+         Arrays.sort(order, (a, b) -> value[b] - value[a]);
+         byValue = new int[numUnique];
+         for(int i = 0; i < numUnique; i++){ byValue[i] = order[i]; }
+      }
+
+      /**
+         Whether an unused real tile with the given letter is left.
+         @param c  the letter
+         @return whether the rack still has a c
+       */
+      public boolean hasLeft(char c){
+         int j = Arrays.binarySearch(unique, 0, numUnique, c);
+         return j >= 0 && mult[j] > 0;
+      }
+
+      /**
+         Get the most that up to n more tiles can add to a score: the sum of the n most valuable
+         unused letters that occur in letters (blanks add nothing).
+         @param n  the number of tiles that can still be played
+         @param letters  the letters that can still be played, as a below mask
+         @return an upper bound on the score of n more tiles
+       */
+      public int bestValue(int n, int letters){
+         int total = 0;
+         for(int i = 0; i < numUnique && n > 0; i++){
+            int j = byValue[i];
+            if((letterBit(unique[j]) & letters) == 0){ continue; }
+            int take = Math.min(n, mult[j]);
+            total += take * value[j];
+            n -= take;
+         }
+         return total;
+      }
+   }
+
+   /**
+      Write the flattened graph, to be read back with readFrom.
+      Layout: numNodes, numEdges, firstEdge (numNodes + 1 ints), edgeTarget (numEdges ints),
+      edgeLabel (numEdges chars), terminal (numNodes bytes).
+      @param out  the stream to write to
+      @throws IOException  if the stream cannot be written
+    */
+   public void writeTo(DataOutputStream out) throws IOException {
+      out.writeInt(terminal.length);
+      out.writeInt(edgeLabel.length);
+      for(int first : firstEdge){ out.writeInt(first); }
+      for(int target : edgeTarget){ out.writeInt(target); }
+      for(char label : edgeLabel){ out.writeChar(label); }
+      for(boolean isWord : terminal){ out.writeByte(isWord ? 1 : 0); }
+   }
+
+   /**
+      Get the number of bytes writeTo writes for this graph.
+      @return the size of the written graph in bytes
+    */
+   public long byteSize(){
+      return byteSize(terminal.length, edgeLabel.length);
+   }
+
+   /**
+      Get the number of bytes writeTo writes for a graph of the given size.
+      @param numNodes  the number of nodes
+      @param numEdges  the number of edges
+      @return the size of the written graph in bytes
+    */
+   public static long byteSize(long numNodes, long numEdges){
+      return 2L * Integer.BYTES + (numNodes + 1) * Integer.BYTES + numEdges * (Integer.BYTES + Character.BYTES) + numNodes;
+   }
+
+   /**
+      Read a graph written by writeTo, copying it out of the buffer.
+      @param buffer  the buffer to read from
+      @param pos  the byte position the graph starts at
+      @return the graph
+      @throws IOException  if the graph does not fit in the buffer
+    */
+   public static WordGraph readFrom(ByteBuffer buffer, int pos) throws IOException {
+      int numNodes = buffer.getInt(pos);
+      int numEdges = buffer.getInt(pos + Integer.BYTES);
+      if(numNodes < 1 || numEdges < 0 || pos + byteSize(numNodes, numEdges) > buffer.limit()){
+         throw new IOException("truncated word graph");
+      }
+
+      ByteBuffer in = buffer.duplicate();
+      in.position(pos + 2 * Integer.BYTES);
+      int[] firstEdge = new int[numNodes + 1];
+      int[] edgeTarget = new int[numEdges];
+      char[] edgeLabel = new char[numEdges];
+      boolean[] terminal = new boolean[numNodes];
+      in.asIntBuffer().get(firstEdge);
+      in.position(in.position() + firstEdge.length * Integer.BYTES);
+      in.asIntBuffer().get(edgeTarget);
+      in.position(in.position() + edgeTarget.length * Integer.BYTES);
+      in.asCharBuffer().get(edgeLabel);
+      in.position(in.position() + edgeLabel.length * Character.BYTES);
+      for(int i = 0; i < numNodes; i++){
+         terminal[i] = in.get() != 0;
+      }
+      return new WordGraph(firstEdge, edgeLabel, edgeTarget, terminal);
+   }
+
+   /**
+      Number the nodes breadth-first from the root and copy the graph into the arrays.
+      @param root  the root of the minimized graph
+    */
+   private void flatten(Builder.Node root){
+      ArrayList<Builder.Node> order = new ArrayList<Builder.Node>();
+      Map<Builder.Node, Integer> id = new IdentityHashMap<Builder.Node, Integer>();
+      order.add(root);
+      id.put(root, 0);
+      int numEdges = 0;
+
+      for(int n = 0; n < order.size(); n++){
+         Builder.Node node = order.get(n);
+         numEdges += node.size;
+         for(int i = 0; i < node.size; i++){
+            if(!id.containsKey(node.children[i])){
+               id.put(node.children[i], order.size());
+               order.add(node.children[i]);
+            }
+         }
+      }
+
+      firstEdge = new int[order.size() + 1];
+      edgeLabel = new char[numEdges];
+      edgeTarget = new int[numEdges];
+      terminal = new boolean[order.size()];
+      int e = 0;
+      for(int n = 0; n < order.size(); n++){
+         Builder.Node node = order.get(n);
+         firstEdge[n] = e;
+         terminal[n] = node.terminal;
+         for(int i = 0; i < node.size; i++){
+            edgeLabel[e] = node.labels[i];
+            edgeTarget[e] = id.get(node.children[i]);
+            e++;
+         }
+      }
+      firstEdge[order.size()] = e;
+   }
+
+   /**
+      Incremental construction of a minimal DAWG from sorted words (Daciuk et al., 2000).
+      After each word, the part of the previous word's path that the new word doesn't share can no longer
+      change, so its nodes are replaced by equivalent nodes already registered, or registered themselves.
+    */
+   private static class Builder {
+      /**
+         A node under construction. Two nodes are equal if they have the same terminal flag and the same
+         edges leading to the same (already minimized) children.
+       */
+      private static class Node {
+         private char[] labels = new char[2];
+         private Node[] children = new Node[2];
+         private int size;
+         private boolean terminal;
+
+         /**
+            Add an edge after all existing ones (words arrive sorted, so labels stay sorted).
+            @param label  the letter of the edge
+            @param child  the node it leads to
+          */
+         public void add(char label, Node child){
+            if(size == labels.length){
+               labels = Arrays.copyOf(labels, size * 2);
+               children = Arrays.copyOf(children, size * 2);
+            }
+            labels[size] = label;
+            children[size] = child;
+            size++;
+         }
+
+         @Override
+         public boolean equals(Object other){
+            if(!(other instanceof Node)){ return false; }
+            Node node = (Node) other;
+            if(terminal != node.terminal || size != node.size){ return false; }
+            for(int i = 0; i < size; i++){
+               if(labels[i] != node.labels[i] || children[i] != node.children[i]){ return false; }
+            }
+            return true;
+         }
+
+         @Override
+         public int hashCode(){
+            int h = terminal ? 1 : 0;
+            for(int i = 0; i < size; i++){
+               h = 31 * (31 * h + labels[i]) + System.identityHashCode(children[i]);
+            }
+            return h;
+         }
+      }
+
+      private Map<Node, Node> register = new HashMap<Node, Node>();
+      private ArrayList<Node> unchecked = new ArrayList<Node>();  // path of the previous word, from the root
+
+      /**
+         Build the minimal graph of the given words.
+         @param sorted  the words in increasing order, without duplicates
+         @return the root of the graph
+       */
+      public Node build(String[] sorted){
+         Node root = new Node();
+         unchecked.add(root);
+         String previous = "";
+
+         for(String word : sorted){
+            int common = 0;
+            while(common < word.length() && common < previous.length()
+                  && word.charAt(common) == previous.charAt(common)){
+               common++;
+            }
+            minimize(common);
+
+            Node node = unchecked.get(common);
+            for(int i = common; i < word.length(); i++){
+               Node child = new Node();
+               node.add(word.charAt(i), child);
+               unchecked.add(child);
+               node = child;
+            }
+            node.terminal = true;
+            previous = word;
+         }
+         minimize(0);
+         return root;
+      }
+
+      /**
+         Replace or register the nodes of the previous word's path below depth downTo.
+         @param downTo  the depth of the deepest node that may still get new edges
+       */
+      private void minimize(int downTo){
+         for(int depth = unchecked.size() - 1; depth > downTo; depth--){
+            Node child = unchecked.remove(depth);
+            Node parent = unchecked.get(depth - 1);
+            Node existing = register.get(child);
+            if(existing != null){ parent.children[parent.size - 1] = existing; }
+            else{ register.put(child, child); }
+         }
+      }
+   }
+}